@@ -0,0 +1,114 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.benchmark;
+
+import com.google.sps.data.BadDataException;
+import com.google.sps.data.CsvParser;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares reading a "latitude,longitude" csv with {@code CsvParser} against the
+ * {@code Scanner.nextLine} and {@code String.split} loop the data servlets used before. The
+ * "ufo" file is the ufo-data.csv of the maps walkthrough, the others are synthetic files with
+ * that many rows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvParserBenchmark {
+  private static final long SEED = 2020;
+  private static final Path UFO_DATA = Paths.get(
+      "../../walkthroughs/week-4-libraries/maps/examples/ufos/src/main/webapp/WEB-INF/ufo-data.csv");
+
+  @Param({"ufo", "10000000"})
+  public String rows;
+
+  private Path csv;
+  private boolean isSynthetic;
+
+  @Setup
+  public void setUp() throws IOException {
+    isSynthetic = !rows.equals("ufo");
+    csv = isSynthetic ? writeSyntheticCsv(Integer.parseInt(rows)) : UFO_DATA;
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    if (isSynthetic) {
+      Files.delete(csv);
+    }
+  }
+
+  @Benchmark
+  public double csvParser() throws IOException, BadDataException {
+    double sum = 0;
+    try (CsvParser parser = CsvParser.open(csv)) {
+      while (parser.nextRow()) {
+        sum += parser.getDouble(0) + parser.getDouble(1);
+      }
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double scannerSplit() throws IOException {
+    double sum = 0;
+    try (InputStream in = Files.newInputStream(csv);
+        Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name())) {
+      while (scanner.hasNextLine()) {
+        String[] cells = scanner.nextLine().split(",");
+        sum += Double.parseDouble(cells[0]) + Double.parseDouble(cells[1]);
+      }
+    }
+    return sum;
+  }
+
+  /** Write a temporary csv of random coordinates with as many digits as the ufo data */
+  private static Path writeSyntheticCsv(int rowCount) throws IOException {
+    Path file = Files.createTempFile("coordinates", ".csv");
+    Random random = new Random(SEED);
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      for (int i = 0; i < rowCount; i++) {
+        writer.write(String.format(Locale.ROOT, "%.7f,%.7f\n",
+            random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180));
+      }
+    }
+    return file;
+  }
+}
@@ -11,11 +11,38 @@
 // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
 // See the License for the specific language governing permissions and
 // limitations under the License.
-
 package com.google.sps.data;
 
 public class BadDataException extends Exception {
+  private final int line;
+  private final int column;
+
   public BadDataException(String msg) {
     super(msg);
+    this.line = 0;
+    this.column = 0;
+  }
+
+  /**
+   * An error at a position of a file. Lines and columns start at 1, columns count bytes.
+   */
+  public BadDataException(String source, int line, int column, String msg) {
+    super(source + ":" + line + ":" + column + ": " + msg);
+    this.line = line;
+    this.column = column;
+  }
+
+  /**
+   * Return the line of the error, or 0 if it is not known
+   */
+  public int getLine() {
+    return line;
+  }
+
+  /**
+   * Return the column of the error, or 0 if it is not known
+   */
+  public int getColumn() {
+    return column;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,168 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.data;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts a "date,attribute,value" csv, with dates like 2020-06-30 and no headers, into the
+ * file format of {@link ColumnarDataset}. It runs offline, before deploying:
+ *
+ * <pre>
+ * java -cp target/classes com.google.sps.data.ColumnarConverter input.csv output.col
+ * </pre>
+ *
+ * The output is written to a temporary file and then moved in place, so a server mapping the
+ * old file keeps reading a complete file and only sees the new one once it is done.
+ */
+public final class ColumnarConverter {
+
+  private ColumnarConverter() {
+    throw new java.lang.UnsupportedOperationException("Utility class cannot be instantiated");
+  }
+
+  public static void main(String[] args) throws IOException, BadDataException {
+    if (args.length != 2) {
+      System.err.println("Usage: ColumnarConverter <input.csv> <output.col>");
+      System.exit(2);
+    }
+    int rows = convert(Paths.get(args[0]), Paths.get(args[1]));
+    System.out.println("Wrote " + rows + " rows to " + args[1]);
+  }
+
+  /**
+   * Convert a csv file into a columnar dataset file and return the number of rows
+   */
+  public static int convert(Path csv, Path output) throws IOException, BadDataException {
+    int rowCount = 0;
+    int[] days = new int[1024];
+    int[] attributeIds = new int[1024];
+    int[] values = new int[1024];
+    List<String> attributes = new ArrayList<>();
+    Map<String, Integer> dictionary = new HashMap<>();
+
+    try (CsvParser parser = CsvParser.open(csv)) {
+      while (parser.nextRow()) {
+        parser.requireFieldCount(3);
+
+        if (rowCount == days.length) {
+          days = Arrays.copyOf(days, rowCount * 2);
+          attributeIds = Arrays.copyOf(attributeIds, rowCount * 2);
+          values = Arrays.copyOf(values, rowCount * 2);
+        }
+
+        try {
+          days[rowCount] = (int) LocalDate.parse(parser.getString(0)).toEpochDay();
+        } catch (DateTimeParseException exc) {
+          throw new BadDataException(csv.getFileName().toString(), parser.getLine(), 1,
+              "Expected a date like 2020-06-30 but found '" + parser.getString(0) + "'");
+        }
+
+        String attribute = parser.getString(1);
+        Integer id = dictionary.get(attribute);
+        if (id == null) {
+          id = attributes.size();
+          attributes.add(attribute);
+          dictionary.put(attribute, id);
+        }
+        attributeIds[rowCount] = id;
+        values[rowCount] = parser.getInt(2);
+        rowCount++;
+      }
+    }
+
+    if (rowCount == 0) {
+      throw new BadDataException("The csv file " + csv.getFileName() + " was empty");
+    }
+
+    int firstDay = Integer.MAX_VALUE;
+    int lastDay = Integer.MIN_VALUE;
+    for (int row = 0; row < rowCount; row++) {
+      firstDay = Math.min(firstDay, days[row]);
+      lastDay = Math.max(lastDay, days[row]);
+    }
+    int dayCount = lastDay - firstDay + 1;
+
+    // Counting sort by day: the start of each day is the number of rows of the days before it
+    int[] dayIndex = new int[dayCount + 1];
+    for (int row = 0; row < rowCount; row++) {
+      dayIndex[days[row] - firstDay + 1]++;
+    }
+    for (int day = 0; day < dayCount; day++) {
+      dayIndex[day + 1] += dayIndex[day];
+    }
+
+    int[] sortedAttributeIds = new int[rowCount];
+    int[] sortedValues = new int[rowCount];
+    int[] nextRowOfDay = Arrays.copyOf(dayIndex, dayCount);
+    for (int row = 0; row < rowCount; row++) {
+      int sortedRow = nextRowOfDay[days[row] - firstDay]++;
+      sortedAttributeIds[sortedRow] = attributeIds[row];
+      sortedValues[sortedRow] = values[row];
+    }
+
+    Path temporary = Files.createTempFile(output.toAbsolutePath().getParent(), "columnar", ".tmp");
+    try (OutputStream file = Files.newOutputStream(temporary);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+      out.writeInt(ColumnarDataset.MAGIC);
+      out.writeInt(ColumnarDataset.VERSION);
+      out.writeInt(rowCount);
+      out.writeInt(attributes.size());
+      out.writeInt(firstDay);
+      out.writeInt(dayCount);
+
+      writeInts(out, dayIndex, dayIndex.length);
+
+      for (String attribute : attributes) {
+        byte[] bytes = attribute.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+      while (out.size() % Integer.BYTES != 0) {
+        out.writeByte(0);
+      }
+
+      writeInts(out, sortedAttributeIds, rowCount);
+      writeInts(out, sortedValues, rowCount);
+    } catch (IOException exc) {
+      Files.deleteIfExists(temporary);
+      throw exc;
+    }
+
+    Files.move(temporary, output,
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return rowCount;
+  }
+
+  private static void writeInts(DataOutputStream out, int[] ints, int count) throws IOException {
+    for (int i = 0; i < count; i++) {
+      out.writeInt(ints[i]);
+    }
+  }
+}
@@ -0,0 +1,272 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A time series dataset of "date,attribute,value" rows, memory-mapped from a file written by
+ * {@link ColumnarConverter}. Only the attribute names live in the heap, the columns are read
+ * straight from the mapped file, so queries cost no memory per row.
+ *
+ * <p>The file holds, after a header:
+ * <ul>
+ *   <li>The day index: for each day from the first to the last, the row its rows start at. Rows
+ *       are sorted by day, so the dates are stored once per day instead of once per row.
+ *   <li>The dictionary: each attribute name once, rows refer to it by its position.
+ *   <li>The attribute column: the dictionary position of each row.
+ *   <li>The value column: the value of each row.
+ * </ul>
+ * All numbers are big endian ints. The whole structure is checked when the file is mapped, so
+ * a truncated or corrupt file is rejected then instead of failing the queries that read it.
+ */
+public final class ColumnarDataset {
+
+  static final int MAGIC = 0x434f4c31;
+  static final int VERSION = 1;
+  static final int HEADER_INTS = 6;
+
+  private final String name;
+  private final int rowCount;
+  private final int firstDay;
+  private final int dayCount;
+  private final IntBuffer dayIndex;
+  private final List<String> attributes;
+  private final Map<String, Integer> attributeIds;
+  private final IntBuffer attributeColumn;
+  private final IntBuffer valueColumn;
+
+  private ColumnarDataset(String name, ByteBuffer file) throws BadDataException {
+    this.name = name;
+
+    if (file.getInt() != MAGIC || file.getInt() != VERSION) {
+      throw new BadDataException(name + " is not a columnar dataset of version " + VERSION);
+    }
+    rowCount = file.getInt();
+    int attributeCount = file.getInt();
+    firstDay = file.getInt();
+    dayCount = file.getInt();
+    if (rowCount < 0 || attributeCount < 0 || dayCount < 0) {
+      throw new BadDataException(name + " has negative counts in its header");
+    }
+
+    dayIndex = sliceInts(name, file, dayCount + 1L);
+    checkDayIndex(name, dayIndex, rowCount);
+
+    List<String> names = new ArrayList<>(attributeCount);
+    Map<String, Integer> ids = new HashMap<>();
+    for (int id = 0; id < attributeCount; id++) {
+      int length = file.getInt();
+      if (length < 0 || length > file.remaining()) {
+        throw new BadDataException(name + " has an attribute name longer than the file");
+      }
+      byte[] bytes = new byte[length];
+      file.get(bytes);
+      String attribute = new String(bytes, StandardCharsets.UTF_8);
+      names.add(attribute);
+      ids.put(attribute, id);
+    }
+    // The columns start at a multiple of 4 bytes
+    file.position((file.position() + 3) & ~3);
+    attributes = Collections.unmodifiableList(names);
+    attributeIds = ids;
+
+    attributeColumn = sliceInts(name, file, rowCount);
+    valueColumn = sliceInts(name, file, rowCount);
+    if (file.hasRemaining()) {
+      throw new BadDataException(name + " has " + file.remaining() + " bytes after its columns");
+    }
+    checkAttributeColumn(name, attributeColumn, attributeCount);
+  }
+
+  /**
+   * Map a dataset file, named after the file without its extension
+   */
+  public static ColumnarDataset open(Path file) throws IOException, BadDataException {
+    String fileName = file.getFileName().toString();
+    String name = fileName.substring(0, fileName.lastIndexOf('.'));
+
+    // The mapping stays valid after the channel is closed
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      try {
+        return new ColumnarDataset(name, mapped);
+      } catch (RuntimeException exc) {
+        throw new BadDataException(fileName + " is truncated or corrupt: " + exc);
+      }
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Return the first day with data, in days since the epoch
+   */
+  public int getFirstDay() {
+    return firstDay;
+  }
+
+  /**
+   * Return the last day with data, in days since the epoch
+   */
+  public int getLastDay() {
+    return firstDay + dayCount - 1;
+  }
+
+  /**
+   * Return the attribute names, the position of each one is its id
+   */
+  public List<String> getAttributes() {
+    return attributes;
+  }
+
+  /**
+   * Return the id of an attribute, or -1 if the dataset does not have it
+   */
+  public int findAttribute(String attribute) {
+    Integer id = attributeIds.get(attribute);
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * Return the sum of the values of each attribute from {@code fromDay} to {@code toDay}, both
+   * included, indexed by attribute id
+   */
+  public long[] sumByAttribute(int fromDay, int toDay) {
+    long[] sums = new long[attributes.size()];
+    int end = rowOfDay(toDay + 1);
+    for (int row = rowOfDay(fromDay); row < end; row++) {
+      sums[attributeColumn.get(row)] += valueColumn.get(row);
+    }
+    return sums;
+  }
+
+  /**
+   * Return the sum of the values of each day from {@code fromDay} to {@code toDay}, both
+   * included, indexed by day from {@code fromDay}. An attribute id of -1 sums every attribute.
+   */
+  public long[] sumByDay(int fromDay, int toDay, int attributeId) {
+    long[] sums = new long[Math.max(toDay - fromDay + 1, 0)];
+    for (int day = Math.max(fromDay, firstDay); day <= Math.min(toDay, getLastDay()); day++) {
+      int end = rowOfDay(day + 1);
+      long sum = 0;
+      for (int row = rowOfDay(day); row < end; row++) {
+        if (attributeId < 0 || attributeColumn.get(row) == attributeId) {
+          sum += valueColumn.get(row);
+        }
+      }
+      sums[day - fromDay] = sum;
+    }
+    return sums;
+  }
+
+  /**
+   * Return the number of rows of each attribute from {@code fromDay} to {@code toDay}, both
+   * included, indexed by attribute id
+   */
+  public long[] countByAttribute(int fromDay, int toDay) {
+    long[] counts = new long[attributes.size()];
+    int end = rowOfDay(toDay + 1);
+    for (int row = rowOfDay(fromDay); row < end; row++) {
+      counts[attributeColumn.get(row)]++;
+    }
+    return counts;
+  }
+
+  /**
+   * Return the number of rows of each day from {@code fromDay} to {@code toDay}, both included,
+   * indexed by day from {@code fromDay}. An attribute id of -1 counts every attribute.
+   */
+  public long[] countByDay(int fromDay, int toDay, int attributeId) {
+    long[] counts = new long[Math.max(toDay - fromDay + 1, 0)];
+    for (int day = Math.max(fromDay, firstDay); day <= Math.min(toDay, getLastDay()); day++) {
+      int start = rowOfDay(day);
+      int end = rowOfDay(day + 1);
+      if (attributeId < 0) {
+        counts[day - fromDay] = end - start;
+        continue;
+      }
+      for (int row = start; row < end; row++) {
+        if (attributeColumn.get(row) == attributeId) {
+          counts[day - fromDay]++;
+        }
+      }
+    }
+    return counts;
+  }
+
+  /** Return the first row of a day, days outside of the data are clamped to its ends */
+  private int rowOfDay(int day) {
+    int offset = Math.min(Math.max(day - firstDay, 0), dayCount);
+    return dayIndex.get(offset);
+  }
+
+  /** Return a view of the next {@code count} ints of the file and move past them */
+  private static IntBuffer sliceInts(String name, ByteBuffer file, long count)
+      throws BadDataException {
+    if (count * Integer.BYTES > file.remaining()) {
+      throw new BadDataException(name + " is truncated, it ends before its columns");
+    }
+    int bytes = (int) count * Integer.BYTES;
+    ByteBuffer slice = file.slice();
+    slice.limit(bytes);
+    file.position(file.position() + bytes);
+    return slice.asIntBuffer();
+  }
+
+  /** Check that the days start at row 0, never go back and end at the last row */
+  private static void checkDayIndex(String name, IntBuffer dayIndex, int rowCount)
+      throws BadDataException {
+    int previous = 0;
+    for (int day = 0; day < dayIndex.limit(); day++) {
+      int row = dayIndex.get(day);
+      if (row < previous || row > rowCount || (day == 0 && row != 0)) {
+        throw new BadDataException(name + " has a day index out of order at day " + day);
+      }
+      previous = row;
+    }
+    if (previous != rowCount) {
+      throw new BadDataException(name + " has a day index that does not cover every row");
+    }
+  }
+
+  /** Check that every row refers to an attribute of the dictionary */
+  private static void checkAttributeColumn(String name, IntBuffer attributeColumn,
+      int attributeCount) throws BadDataException {
+    for (int row = 0; row < attributeColumn.limit(); row++) {
+      int id = attributeColumn.get(row);
+      if (id < 0 || id >= attributeCount) {
+        throw new BadDataException(name + " has an unknown attribute id " + id + " at row " + row);
+      }
+    }
+  }
+}
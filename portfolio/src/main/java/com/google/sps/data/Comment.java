@@ -14,18 +14,20 @@
 
 package com.google.sps.data;
 
-import java.util.Date;
+import java.io.Serializable;
 
-/** A comment. */
-public final class Comment {
+/** A comment. Its date is in milliseconds since the epoch. */
+public final class Comment implements Serializable {
+
+  private static final long serialVersionUID = 2L;
 
   private final long id;
   private final String username;
   private String text;
   private final String imageId;
-  private final Date date;
+  private final long date;
 
-  public Comment(long id, String username, String text, String imageId, Date date) {
+  public Comment(long id, String username, String text, String imageId, long date) {
     this.id = id;
     this.username = username;
     this.text = text;
@@ -49,7 +51,7 @@ public final class Comment {
     return imageId;
   }
 
-  public Date getDate() {
+  public long getDate() {
     return date;
   }
 
@@ -0,0 +1,48 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.data;
+
+/**
+ * Cache of the pages of comments of each image. Pages are cached untranslated and are only
+ * valid until the comments of their image change, so writers have to {@code invalidate} the
+ * image after adding or deleting its comments.
+ *
+ * <p>Readers get the generation of the image before looking up a page and pass the same
+ * generation when caching the page they read on a miss. If the image was invalidated in
+ * between, the page could miss the new comments and it is not found by later lookups.
+ */
+public interface CommentCache {
+
+  /**
+   * Return the current generation of an image, it changes every time the image is invalidated
+   */
+  long getGeneration(String imageId);
+
+  /**
+   * Return the cached page of an image, or null if it is not cached
+   * @param generation the generation of the image when the lookup started
+   * @param pageKey identifies the page inside the image, like its order, size and cursor
+   */
+  CommentPage get(String imageId, long generation, String pageKey);
+
+  /**
+   * Cache a page of an image read in {@code generation}
+   */
+  void put(String imageId, long generation, String pageKey, CommentPage page);
+
+  /**
+   * Forget every cached page of an image
+   */
+  void invalidate(String imageId);
+}
@@ -0,0 +1,102 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.data;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Transaction;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Number of comments of each image, split in shards so that many comments added to the same
+ * image at once do not contend for a single entity. Each update goes to a random shard inside
+ * the transaction that writes the comments, and the count of an image is the sum of its shards.
+ */
+public final class CommentCounter {
+
+  public static final String KIND = "CommentCounterShard";
+
+  private static final int SHARDS = 10;
+
+  private CommentCounter() {
+    throw new java.lang.UnsupportedOperationException("Utility class cannot be instantiated");
+  }
+
+  /**
+   * Add {@code delta} to the count of an image as part of a transaction. The shard is one more
+   * entity group in the transaction, and the transaction fails with a
+   * {@code ConcurrentModificationException} if another one changed the shard first.
+   */
+  public static void add(Transaction transaction, String imageId, long delta) {
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    Key shardKey = shardKey(imageId, ThreadLocalRandom.current().nextInt(SHARDS));
+
+    Entity shard;
+    try {
+      shard = datastore.get(transaction, shardKey);
+    } catch (EntityNotFoundException exc) {
+      shard = new Entity(shardKey);
+      shard.setProperty("count", 0L);
+    }
+    shard.setUnindexedProperty("count", (Long) shard.getProperty("count") + delta);
+    datastore.put(transaction, shard);
+  }
+
+  /**
+   * Return the count of each image, read with a single batched get
+   */
+  public static Map<String, Long> getCounts(List<String> imageIds) {
+    List<Key> keys = new ArrayList<>();
+    for (String imageId : imageIds) {
+      for (int shard = 0; shard < SHARDS; shard++) {
+        keys.add(shardKey(imageId, shard));
+      }
+    }
+
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    Map<Key, Entity> shards = datastore.get(keys);
+
+    Map<String, Long> counts = new LinkedHashMap<>();
+    for (String imageId : imageIds) {
+      long count = 0;
+      for (int shard = 0; shard < SHARDS; shard++) {
+        Entity shardEntity = shards.get(shardKey(imageId, shard));
+        if (shardEntity != null) {
+          count += (Long) shardEntity.getProperty("count");
+        }
+      }
+      counts.put(imageId, count);
+    }
+    return counts;
+  }
+
+  /**
+   * Return the most images whose counts can be read at once, a batched get takes up to 1000 keys
+   */
+  public static int maxImagesPerGet() {
+    return 1000 / SHARDS;
+  }
+
+  private static Key shardKey(String imageId, int shard) {
+    return KeyFactory.createKey(KIND, imageId + "#" + shard);
+  }
+}
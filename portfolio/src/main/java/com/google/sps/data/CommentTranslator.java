@@ -0,0 +1,344 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.data;
+
+import com.google.appengine.api.datastore.DatastoreFailureException;
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.DatastoreTimeoutException;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Text;
+import com.google.appengine.api.datastore.Transaction;
+import com.google.appengine.api.datastore.TransactionOptions;
+import com.google.cloud.translate.Translate;
+import com.google.cloud.translate.TranslateException;
+import com.google.cloud.translate.Translation;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Translates comments using the Cloud Translation API. Translations are looked up first in an
+ * in-memory cache, then (optionally) in the Comment entities, where they are stored as
+ * {@code translation_<lang>} properties. Only the comments found in neither are sent to the API,
+ * all together in as few calls as the API limits allow. When the comments need several calls,
+ * they are made concurrently.
+ */
+public final class CommentTranslator {
+
+  public static final String TRANSLATION_PROPERTY_PREFIX = "translation_";
+
+  // Limits of a single call to the Translation API
+  private static final int MAX_BATCH_TEXTS = 128;
+  private static final int MAX_BATCH_CHARS = 5000;
+
+  // Entity groups a single cross group transaction can write
+  private static final int MAX_TRANSACTION_GROUPS = 25;
+
+  private final Translate translate;
+  private final ExecutorService executor;
+  private final TranslationCache cache;
+  private final boolean persistTranslations;
+
+  /**
+   * @param executor runs the calls to the API when a page needs more than one
+   * @param persistTranslations also read and store translations in the Comment entities
+   */
+  public CommentTranslator(Translate translate, ExecutorService executor, TranslationCache cache,
+      boolean persistTranslations) {
+    this.translate = translate;
+    this.executor = executor;
+    this.cache = cache;
+    this.persistTranslations = persistTranslations;
+  }
+
+  /**
+   * Return translated copies of the comments, in the same order
+   */
+  public List<Comment> translate(List<Comment> comments, String targetLang)
+      throws TranslateException {
+    Map<Long, String> translations = new HashMap<>();
+    List<Comment> misses = new ArrayList<>();
+    for (Comment comment : comments) {
+      String translatedText = cache.get(comment.getId(), targetLang);
+      if (translatedText == null) {
+        misses.add(comment);
+      } else {
+        translations.put(comment.getId(), translatedText);
+      }
+    }
+
+    if (!misses.isEmpty() && persistTranslations) {
+      misses = readStoredTranslations(misses, targetLang, translations);
+    }
+
+    if (!misses.isEmpty()) {
+      Map<Long, String> newTranslations = callTranslateApi(misses, targetLang);
+      translations.putAll(newTranslations);
+      if (persistTranslations) {
+        storeTranslations(newTranslations, targetLang);
+      }
+    }
+
+    List<Comment> translatedComments = new ArrayList<>();
+    for (Comment comment : comments) {
+      translatedComments.add(new Comment(comment.getId(), comment.getUsername(),
+          translations.get(comment.getId()), comment.getImageId(), comment.getDate()));
+    }
+    return translatedComments;
+  }
+
+  /**
+   * Translate comments into each of the languages and store the translations in their entities.
+   * The languages a comment already has a stored translation for are skipped, so trying again
+   * only translates what is missing. The texts of each language are sent together, in as few
+   * calls as the API limits allow. Comments that were deleted are skipped and not stored back.
+   * @throws ConcurrentModificationException if an entity changed while storing, the caller
+   *     should try again
+   */
+  public void pretranslate(List<Long> commentIds, Collection<String> targetLangs)
+      throws TranslateException {
+    List<Key> keys = new ArrayList<>();
+    for (long commentId : commentIds) {
+      keys.add(commentKey(commentId));
+    }
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    Map<Key, Entity> entities = datastore.get(keys);
+
+    Map<Long, Map<String, String>> translationsById = new HashMap<>();
+    for (String targetLang : targetLangs) {
+      List<Comment> missing = new ArrayList<>();
+      for (Entity entity : entities.values()) {
+        if (entity.getProperty(translationProperty(targetLang)) == null) {
+          missing.add(createComment(entity));
+        }
+      }
+      if (missing.isEmpty()) {
+        continue;
+      }
+
+      for (Map.Entry<Long, String> translation :
+          callTranslateApi(missing, targetLang).entrySet()) {
+        translationsById.computeIfAbsent(translation.getKey(), id -> new HashMap<>())
+            .put(targetLang, translation.getValue());
+      }
+    }
+
+    List<Key> translatedKeys = new ArrayList<>();
+    for (long commentId : translationsById.keySet()) {
+      translatedKeys.add(commentKey(commentId));
+    }
+    for (int from = 0; from < translatedKeys.size(); from += MAX_TRANSACTION_GROUPS) {
+      storeChunk(translatedKeys.subList(
+          from, Math.min(from + MAX_TRANSACTION_GROUPS, translatedKeys.size())), translationsById);
+    }
+  }
+
+  /**
+   * Return the name of the entity property that stores the translation into a language
+   */
+  public static String translationProperty(String targetLang) {
+    return TRANSLATION_PROPERTY_PREFIX + targetLang;
+  }
+
+  /**
+   * Add the translations stored in the Comment entities and return the comments that have none.
+   * If the entities can't be read, every comment is a miss.
+   */
+  private List<Comment> readStoredTranslations(
+      List<Comment> comments, String targetLang, Map<Long, String> translations) {
+    List<Key> keys = new ArrayList<>();
+    for (Comment comment : comments) {
+      keys.add(commentKey(comment.getId()));
+    }
+
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    Map<Key, Entity> entities;
+    try {
+      entities = datastore.get(keys);
+    } catch (DatastoreFailureException | DatastoreTimeoutException exc) {
+      System.out.println(exc);
+      return comments;
+    }
+
+    List<Comment> misses = new ArrayList<>();
+    for (Comment comment : comments) {
+      Entity entity = entities.get(commentKey(comment.getId()));
+      Text translatedText =
+          entity == null ? null : (Text) entity.getProperty(translationProperty(targetLang));
+      if (translatedText == null) {
+        misses.add(comment);
+      } else {
+        translations.put(comment.getId(), translatedText.getValue());
+        cache.put(comment.getId(), targetLang, translatedText.getValue());
+      }
+    }
+    return misses;
+  }
+
+  /**
+   * Translate the comments in batches and add them to the cache
+   */
+  private Map<Long, String> callTranslateApi(List<Comment> comments, String targetLang) {
+    List<List<Comment>> batches = splitInBatches(comments);
+
+    // The first batch runs in this thread, only the rest go to the executor
+    List<Future<Map<Long, String>>> pending = new ArrayList<>();
+    for (List<Comment> batch : batches.subList(1, batches.size())) {
+      pending.add(executor.submit(() -> translateBatch(batch, targetLang)));
+    }
+
+    Map<Long, String> translations = translateBatch(batches.get(0), targetLang);
+    try {
+      for (Future<Map<Long, String>> batchTranslations : pending) {
+        translations.putAll(batchTranslations.get());
+      }
+    } catch (InterruptedException exc) {
+      Thread.currentThread().interrupt();
+      throw new TranslateException(
+          new InterruptedIOException("Interrupted while waiting for translations"));
+    } catch (ExecutionException exc) {
+      // translateBatch only throws unchecked exceptions, like TranslateException
+      if (exc.getCause() instanceof Error) {
+        throw (Error) exc.getCause();
+      }
+      throw (RuntimeException) exc.getCause();
+    } finally {
+      for (Future<Map<Long, String>> batchTranslations : pending) {
+        batchTranslations.cancel(true);
+      }
+    }
+    return translations;
+  }
+
+  /**
+   * Translate a batch of comments with a single call to the API and add them to the cache
+   */
+  private Map<Long, String> translateBatch(List<Comment> batch, String targetLang) {
+    List<String> texts = new ArrayList<>();
+    for (Comment comment : batch) {
+      texts.add(comment.getText());
+    }
+
+    List<Translation> results =
+        translate.translate(texts, Translate.TranslateOption.targetLanguage(targetLang));
+
+    Map<Long, String> translations = new HashMap<>();
+    for (int i = 0; i < batch.size(); i++) {
+      long commentId = batch.get(i).getId();
+      String translatedText = results.get(i).getTranslatedText();
+      translations.put(commentId, translatedText);
+      cache.put(commentId, targetLang, translatedText);
+    }
+    return translations;
+  }
+
+  /**
+   * Split the comments in batches that fit in a single call to the API
+   */
+  private static List<List<Comment>> splitInBatches(List<Comment> comments) {
+    List<List<Comment>> batches = new ArrayList<>();
+    List<Comment> batch = new ArrayList<>();
+    int batchChars = 0;
+    for (Comment comment : comments) {
+      int chars = comment.getText().length();
+      if (!batch.isEmpty()
+          && (batch.size() == MAX_BATCH_TEXTS || batchChars + chars > MAX_BATCH_CHARS)) {
+        batches.add(batch);
+        batch = new ArrayList<>();
+        batchChars = 0;
+      }
+      batch.add(comment);
+      batchChars += chars;
+    }
+    batches.add(batch);
+    return batches;
+  }
+
+  /**
+   * Store the translations in their Comment entities. Each comment is its own entity group and a
+   * cross group transaction can only write a few of them, so they are stored in chunks.
+   */
+  private void storeTranslations(Map<Long, String> translations, String targetLang) {
+    Map<Long, Map<String, String>> translationsById = new HashMap<>();
+    List<Key> keys = new ArrayList<>();
+    for (Map.Entry<Long, String> translation : translations.entrySet()) {
+      translationsById.put(
+          translation.getKey(), Collections.singletonMap(targetLang, translation.getValue()));
+      keys.add(commentKey(translation.getKey()));
+    }
+
+    for (int from = 0; from < keys.size(); from += MAX_TRANSACTION_GROUPS) {
+      List<Key> chunk = keys.subList(from, Math.min(from + MAX_TRANSACTION_GROUPS, keys.size()));
+      try {
+        storeChunk(chunk, translationsById);
+      } catch (ConcurrentModificationException | DatastoreFailureException
+          | DatastoreTimeoutException | IllegalArgumentException exc) {
+        // The translations are still cached in memory, storing them is only an optimization
+        System.out.println(exc);
+      }
+    }
+  }
+
+  /**
+   * Store the translations of some comments, by language, in a cross group transaction, so a
+   * comment deleted in the meantime is not written back
+   */
+  private void storeChunk(List<Key> keys, Map<Long, Map<String, String>> translationsById) {
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    Transaction transaction = datastore.beginTransaction(TransactionOptions.Builder.withXG(true));
+    try {
+      Map<Key, Entity> entities = datastore.get(transaction, keys);
+      for (Entity entity : entities.values()) {
+        for (Map.Entry<String, String> translation :
+            translationsById.get(entity.getKey().getId()).entrySet()) {
+          entity.setUnindexedProperty(
+              translationProperty(translation.getKey()), new Text(translation.getValue()));
+        }
+      }
+      datastore.put(transaction, entities.values());
+      transaction.commit();
+    } finally {
+      if (transaction.isActive()) {
+        transaction.rollback();
+      }
+    }
+  }
+
+  /**
+   * Return the comment stored in an entity
+   */
+  private static Comment createComment(Entity entity) {
+    return new Comment(entity.getKey().getId(),
+        (String) entity.getProperty("username"),
+        (String) entity.getProperty("comment"),
+        (String) entity.getProperty("imageId"),
+        ((Date) entity.getProperty("date")).getTime());
+  }
+
+  private static Key commentKey(long commentId) {
+    return KeyFactory.createKey("Comment", commentId);
+  }
+}
@@ -0,0 +1,164 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.data;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Buffer that writes new Comment entities to Datastore in batches, using group commit. The
+ * request that adds a comment writes the waiting comments itself, unless another request is
+ * already writing a batch. In that case it waits, and the comments added in the meantime go
+ * together in the next batch. Every request returns only once its own comment is written, so
+ * nothing is left in the buffer of an idle instance and the comment can be read right after.
+ * The request still waits for a commit, so the buffer saves Datastore calls rather than latency:
+ * an acknowledged comment must not live only in the memory of one instance.
+ *
+ * <p>Batches only form while requests run concurrently in the same instance, which needs
+ * {@code <threadsafe>true</threadsafe>}. Otherwise every comment is written on its own, like
+ * without the buffer.
+ *
+ * <p>Comments get their ids as soon as they are added, from blocks allocated in advance. A
+ * batch stays in the buffer until it is stored, so writing it again after a failure does not
+ * duplicate its comments.
+ */
+public final class CommentWriteBuffer {
+
+  // Datastore accepts at most 500 entities in a single put
+  private static final int MAX_BATCH_SIZE = 500;
+  private static final long ID_BLOCK_SIZE = 100;
+
+  private final int batchSize;
+  private final Consumer<List<Entity>> store;
+
+  private final List<Entity> pending = new ArrayList<>();
+  private boolean writing = false;
+  private Iterator<Key> allocatedKeys = Collections.emptyIterator();
+
+  /**
+   * @param batchSize most comments written together
+   * @param store writes a batch of comments and whatever depends on them, it throws if the
+   *     batch was not stored
+   */
+  public CommentWriteBuffer(int batchSize, Consumer<List<Entity>> store) {
+    this.batchSize = Math.min(batchSize, MAX_BATCH_SIZE);
+    this.store = store;
+  }
+
+  /**
+   * Add a comment to the buffer and return its key once it is written. If the batch with the
+   * comment fails, the error is thrown and the comment is not written later.
+   */
+  public Key add(Entity comment) {
+    Entity keyedComment;
+    synchronized (this) {
+      if (!allocatedKeys.hasNext()) {
+        DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+        allocatedKeys = datastore.allocateIds(comment.getKind(), ID_BLOCK_SIZE).iterator();
+      }
+
+      keyedComment = new Entity(allocatedKeys.next());
+      keyedComment.setPropertiesFrom(comment);
+      pending.add(keyedComment);
+    }
+
+    writeUntilStored(keyedComment);
+    return keyedComment.getKey();
+  }
+
+  /**
+   * Write every waiting comment, for when the instance shuts down. The requests that added them
+   * return as their batches are written. If a batch fails, the error is thrown.
+   */
+  public void flush() {
+    writeUntilStored(null);
+  }
+
+  /** Return how many comments are waiting to be written */
+  synchronized int getPendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * Write batches from the front of the buffer until the comment, or every comment if it is null,
+   * is stored. Batches that another thread is writing are waited for.
+   */
+  private void writeUntilStored(Entity comment) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        List<Entity> batch;
+        synchronized (this) {
+          // Another thread is writing, the comment goes in the next batch or in that one
+          while (writing && isPending(comment)) {
+            try {
+              wait();
+            } catch (InterruptedException exc) {
+              // The comment can already be in the batch being written, keep waiting for it
+              interrupted = true;
+            }
+          }
+          if (!isPending(comment)) {
+            return;
+          }
+
+          writing = true;
+          batch = new ArrayList<>(pending.subList(0, Math.min(pending.size(), batchSize)));
+        }
+
+        writeBatch(batch, comment);
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private boolean isPending(Entity comment) {
+    return comment == null ? !pending.isEmpty() : pending.contains(comment);
+  }
+
+  /**
+   * Store a batch from the front of the buffer and remove it once it is stored. If it fails,
+   * only the comment of the writing request, if any, is removed, since that request reports the
+   * error.
+   * The other comments in the batch belong to requests that are still waiting, and one of them
+   * writes them again.
+   */
+  private void writeBatch(List<Entity> batch, Entity ownComment) {
+    boolean stored = false;
+    try {
+      store.accept(batch);
+      stored = true;
+    } finally {
+      synchronized (this) {
+        if (stored) {
+          pending.subList(0, batch.size()).clear();
+        } else if (ownComment != null) {
+          pending.remove(ownComment);
+        }
+        writing = false;
+        notifyAll();
+      }
+    }
+  }
+}
@@ -0,0 +1,406 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a csv file one row at a time straight from a byte buffer. Rows are split into fields
+ * by looking for commas, quotes and line breaks, without regular expressions and without
+ * creating a String for each field. Numbers are parsed directly from the bytes, so reading
+ * numeric columns allocates nothing per row.
+ *
+ * <p>Fields can be quoted, with {@code ""} standing for a quote inside them. Empty lines are
+ * skipped. Errors report the line and column where they were found.
+ *
+ * <pre>
+ * try (CsvParser csv = CsvParser.open(path)) {
+ *   while (csv.nextRow()) {
+ *     String attribute = csv.getString(0);
+ *     int value = csv.getInt(1);
+ *   }
+ * }
+ * </pre>
+ */
+public final class CsvParser implements Closeable {
+
+  private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  // Powers of ten that a double represents exactly
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+    1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  // Integers up to 2^53 are exact doubles
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  private final ReadableByteChannel channel;
+  private final String source;
+
+  private ByteBuffer buffer;
+  private boolean endOfInput;
+
+  // Fields of the current row, as offsets in the buffer
+  private int[] fieldStarts = new int[8];
+  private int[] fieldEnds = new int[8];
+  private boolean[] fieldHasEscapedQuotes = new boolean[8];
+  private int fieldCount;
+  private int rowStart;
+  private int line;
+
+  // The line the next row starts at
+  private int nextLine = 1;
+
+  public CsvParser(ReadableByteChannel channel, String source) {
+    this(channel, source, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * @param source the name of the input used in error messages, like its file name
+   * @param bufferSize the initial size of the buffer, it grows if a row does not fit
+   */
+  public CsvParser(ReadableByteChannel channel, String source, int bufferSize) {
+    this.channel = channel;
+    this.source = source;
+    this.buffer = ByteBuffer.allocate(bufferSize);
+    // Nothing has been read yet
+    this.buffer.limit(0);
+  }
+
+  /**
+   * Open a csv file
+   */
+  public static CsvParser open(Path file) throws IOException {
+    return new CsvParser(
+        FileChannel.open(file, StandardOpenOption.READ), file.getFileName().toString());
+  }
+
+  /**
+   * Move to the next row that is not empty. Return false once there are no more rows.
+   */
+  public boolean nextRow() throws IOException, BadDataException {
+    while (true) {
+      if (!buffer.hasRemaining() && !fill()) {
+        return false;
+      }
+
+      byte first = buffer.get(buffer.position());
+      if (first == '\n') {
+        buffer.get();
+        nextLine++;
+      } else if (first == '\r') {
+        buffer.get();
+      } else {
+        break;
+      }
+    }
+
+    line = nextLine;
+    // Once the input ends the last row is split even without a line break
+    while (!splitRow()) {
+      if (!fill()) {
+        throw error(buffer.limit(), "Unexpected end of file");
+      }
+    }
+    nextLine++;
+    return true;
+  }
+
+  /**
+   * Return the line of the current row, starting at 1
+   */
+  public int getLine() {
+    return line;
+  }
+
+  /**
+   * Return the number of fields of the current row
+   */
+  public int getFieldCount() {
+    return fieldCount;
+  }
+
+  /**
+   * Fail unless the current row has exactly {@code expected} fields
+   */
+  public void requireFieldCount(int expected) throws BadDataException {
+    if (fieldCount != expected) {
+      throw error(rowStart, "Expected " + expected + " fields but found " + fieldCount);
+    }
+  }
+
+  /**
+   * Return a field of the current row as text
+   */
+  public String getString(int field) throws BadDataException {
+    checkField(field);
+    String text = new String(buffer.array(), fieldStarts[field],
+        fieldEnds[field] - fieldStarts[field], StandardCharsets.UTF_8);
+    return fieldHasEscapedQuotes[field] ? text.replace("\"\"", "\"") : text;
+  }
+
+  /**
+   * Return a field of the current row as an int
+   */
+  public int getInt(int field) throws BadDataException {
+    checkField(field);
+    byte[] bytes = buffer.array();
+    int position = fieldStarts[field];
+    int end = fieldEnds[field];
+
+    boolean negative = position < end && bytes[position] == '-';
+    if (negative || (position < end && bytes[position] == '+')) {
+      position++;
+    }
+    if (position == end) {
+      throw error(fieldStarts[field], "Expected a number but found '" + getString(field) + "'");
+    }
+
+    // Accumulate as a negative number, which has room for Integer.MIN_VALUE
+    int value = 0;
+    for (; position < end; position++) {
+      int digit = bytes[position] - '0';
+      if (digit < 0 || digit > 9) {
+        throw error(position, "Expected a number but found '" + getString(field) + "'");
+      }
+      if (value < (Integer.MIN_VALUE + digit) / 10) {
+        throw error(fieldStarts[field], "The number " + getString(field) + " is too big");
+      }
+      value = value * 10 - digit;
+    }
+
+    if (!negative) {
+      if (value == Integer.MIN_VALUE) {
+        throw error(fieldStarts[field], "The number " + getString(field) + " is too big");
+      }
+      value = -value;
+    }
+    return value;
+  }
+
+  /**
+   * Return a field of the current row as a double
+   */
+  public double getDouble(int field) throws BadDataException {
+    checkField(field);
+    byte[] bytes = buffer.array();
+    int position = fieldStarts[field];
+    int end = fieldEnds[field];
+
+    boolean negative = position < end && bytes[position] == '-';
+    if (negative || (position < end && bytes[position] == '+')) {
+      position++;
+    }
+
+    // Read the digits as an integer mantissa and a power of ten
+    long mantissa = 0;
+    int exponent = 0;
+    int digits = 0;
+    boolean exact = true;
+    boolean afterPoint = false;
+    for (; position < end; position++) {
+      byte current = bytes[position];
+      if (current == '.' && !afterPoint) {
+        afterPoint = true;
+      } else if (current >= '0' && current <= '9') {
+        digits++;
+        if (mantissa < MAX_EXACT_MANTISSA / 10) {
+          mantissa = mantissa * 10 + (current - '0');
+          if (afterPoint) {
+            exponent--;
+          }
+        } else {
+          exact = false;
+        }
+      } else {
+        break;
+      }
+    }
+
+    if (digits == 0) {
+      throw error(fieldStarts[field], "Expected a number but found '" + getString(field) + "'");
+    }
+
+    // Exponents, like 1.5e3, and anything unusual go through the JDK
+    if (position < end || !exact) {
+      try {
+        return Double.parseDouble(getString(field));
+      } catch (NumberFormatException exc) {
+        throw error(position, "Expected a number but found '" + getString(field) + "'");
+      }
+    }
+
+    // A mantissa and a power of ten that are both exact give a correctly rounded result
+    double value;
+    if (exponent >= -22) {
+      value = mantissa / POWERS_OF_TEN[-exponent];
+    } else {
+      value = Double.parseDouble(getString(field));
+    }
+    return negative ? -value : value;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Split the row at the position of the buffer into fields. Return false, leaving the position
+   * at the start of the row, if the buffer ends before the row does.
+   */
+  private boolean splitRow() throws BadDataException {
+    byte[] bytes = buffer.array();
+    int start = buffer.position();
+    int limit = buffer.limit();
+    int position = start;
+    int currentLine = line;
+
+    rowStart = start;
+    fieldCount = 0;
+    while (true) {
+      boolean escapedQuotes = false;
+      int fieldStart;
+      int fieldEnd;
+
+      if (position < limit && bytes[position] == '"') {
+        // Quoted field, it ends at a quote that is not followed by another quote
+        fieldStart = ++position;
+        while (true) {
+          while (position < limit && bytes[position] != '"') {
+            if (bytes[position] == '\n') {
+              currentLine++;
+            }
+            position++;
+          }
+          if (position + 1 >= limit && !endOfInput) {
+            return false;
+          }
+          if (position >= limit) {
+            throw error(fieldStart - 1, "The quote is never closed");
+          }
+          if (position + 1 < limit && bytes[position + 1] == '"') {
+            escapedQuotes = true;
+            position += 2;
+          } else {
+            break;
+          }
+        }
+        fieldEnd = position++;
+
+        if (position < limit && bytes[position] != ',' && bytes[position] != '\n'
+            && bytes[position] != '\r') {
+          throw error(position, "Expected a comma after the quoted field");
+        }
+      } else {
+        fieldStart = position;
+        while (position < limit && bytes[position] != ',' && bytes[position] != '\n'
+            && bytes[position] != '\r') {
+          position++;
+        }
+        fieldEnd = position;
+      }
+
+      if (position >= limit && !endOfInput) {
+        return false;
+      }
+
+      addField(fieldStart, fieldEnd, escapedQuotes);
+
+      if (position < limit && bytes[position] == ',') {
+        position++;
+        continue;
+      }
+
+      // The end of the row, skip a \r\n line break as a whole
+      if (position < limit && bytes[position] == '\r') {
+        if (position + 1 >= limit && !endOfInput) {
+          return false;
+        }
+        position++;
+      }
+      if (position < limit && bytes[position] == '\n') {
+        position++;
+      }
+      break;
+    }
+
+    buffer.position(position);
+    nextLine = currentLine;
+    return true;
+  }
+
+  private void addField(int start, int end, boolean escapedQuotes) {
+    if (fieldCount == fieldStarts.length) {
+      fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+      fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+      fieldHasEscapedQuotes = Arrays.copyOf(fieldHasEscapedQuotes, fieldCount * 2);
+    }
+    fieldStarts[fieldCount] = start;
+    fieldEnds[fieldCount] = end;
+    fieldHasEscapedQuotes[fieldCount] = escapedQuotes;
+    fieldCount++;
+  }
+
+  /**
+   * Read more input after what is left in the buffer, moving it to the front. The buffer grows
+   * if it is already full. Return false at the end of the input.
+   */
+  private boolean fill() throws IOException {
+    if (endOfInput) {
+      return false;
+    }
+
+    if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+      ByteBuffer bigger = ByteBuffer.allocate(buffer.capacity() * 2);
+      bigger.put(buffer);
+      buffer = bigger;
+    } else {
+      buffer.compact();
+    }
+
+    int read = 0;
+    while (read == 0) {
+      read = channel.read(buffer);
+    }
+    buffer.flip();
+
+    if (read < 0) {
+      endOfInput = true;
+      return buffer.hasRemaining();
+    }
+    return true;
+  }
+
+  private void checkField(int field) throws BadDataException {
+    if (field >= fieldCount) {
+      throw error(rowStart, "Expected at least " + (field + 1) + " fields but found "
+          + fieldCount);
+    }
+  }
+
+  /** Return an error at an offset of the buffer, inside the current row */
+  private BadDataException error(int offset, String message) {
+    return new BadDataException(source, line, offset - rowStart + 1, message);
+  }
+}
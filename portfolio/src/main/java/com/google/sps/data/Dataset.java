@@ -0,0 +1,95 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.data;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A dataset read from an "attribute,value" csv file, with its JSON already rendered. */
+public final class Dataset {
+
+  private final String name;
+  private final Map<String, Integer> data;
+  private final PrecomputedJson json;
+  private final String[] attributes;
+  private final double[] values;
+
+  private Dataset(String name, Map<String, Integer> data) throws IOException {
+    this.name = name;
+    this.data = Collections.unmodifiableMap(data);
+    this.json = PrecomputedJson.of(data);
+
+    attributes = new String[data.size()];
+    values = new double[data.size()];
+    int i = 0;
+    for (Map.Entry<String, Integer> entry : data.entrySet()) {
+      attributes[i] = entry.getKey();
+      values[i] = entry.getValue();
+      i++;
+    }
+  }
+
+  /**
+   * Read a dataset from a csv file, named after the file without its extension.
+   * The structure of the csv needs to be "attribute,value", without headers.
+   */
+  public static Dataset fromCsv(Path csv) throws IOException, BadDataException {
+    String fileName = csv.getFileName().toString();
+    String name = fileName.substring(0, fileName.length() - ".csv".length());
+
+    LinkedHashMap<String, Integer> data = new LinkedHashMap<String, Integer>();
+
+    try (CsvParser parser = CsvParser.open(csv)) {
+      while (parser.nextRow()) {
+        parser.requireFieldCount(2);
+        data.put(parser.getString(0), parser.getInt(1));
+      }
+    }
+
+    if (data.isEmpty()) {
+      throw new BadDataException("The csv file " + fileName + " was empty");
+    }
+
+    return new Dataset(name, data);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Return the values of the dataset by attribute, in the order of the file
+   */
+  public Map<String, Integer> getData() {
+    return data;
+  }
+
+  /**
+   * Return the {@code n} attributes with the largest values and their values, largest first
+   */
+  public Map<String, Integer> top(int n) {
+    Map<String, Integer> top = new LinkedHashMap<>();
+    for (int i : SeriesAggregation.top(values, n)) {
+      top.put(attributes[i], (int) values[i]);
+    }
+    return top;
+  }
+
+  public PrecomputedJson getJson() {
+    return json;
+  }
+}
@@ -0,0 +1,283 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.data;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The datasets of the csv files in a directory, and the time series of its columnar (.col)
+ * files, which are memory-mapped instead of parsed. The files are read on a background thread,
+ * which then watches the directory and parses again the files that are added or changed.
+ * Every change builds a new snapshot of the datasets that replaces the old one at once, so
+ * readers never wait and never see half of a change. A file that fails to parse keeps its
+ * previous version.
+ *
+ * <p>The datasets that existed before the registry keep the names clients already use for them,
+ * both in the JSON of all datasets and when they are requested by name.
+ */
+public final class DatasetRegistry implements Closeable {
+
+  /** The datasets at one point in time, and the JSON of all the csv datasets together */
+  private static final class Snapshot {
+    private final Map<String, Dataset> datasets;
+    private final Map<String, ColumnarDataset> columnarDatasets;
+    private final PrecomputedJson allJson;
+
+    private Snapshot(Map<String, Dataset> datasets,
+        Map<String, ColumnarDataset> columnarDatasets) throws IOException {
+      this.datasets = Collections.unmodifiableMap(datasets);
+      this.columnarDatasets = Collections.unmodifiableMap(columnarDatasets);
+
+      Map<String, Map<String, Integer>> allData = new LinkedHashMap<>();
+      for (Dataset dataset : datasets.values()) {
+        allData.put(PUBLIC_NAMES.getOrDefault(dataset.getName(), dataset.getName()),
+            dataset.getData());
+      }
+      this.allJson = PrecomputedJson.of(allData);
+    }
+  }
+
+  // Names of the first datasets in the JSON of all datasets, by the names of their files
+  private static final Map<String, String> PUBLIC_NAMES = new HashMap<>();
+  private static final Map<String, String> FILE_NAMES = new HashMap<>();
+  static {
+    PUBLIC_NAMES.put("confirmedCovidTampsBySex", "covidBySex");
+    PUBLIC_NAMES.put("confirmedCovidTampsByMunicipality", "covidByMunicipality");
+    PUBLIC_NAMES.put("confirmedCovidTampsByAgeRange", "covidByAgeRange");
+    PUBLIC_NAMES.put("deathsCovidMxByState", "deathsByState");
+    for (Map.Entry<String, String> name : PUBLIC_NAMES.entrySet()) {
+      FILE_NAMES.put(name.getValue(), name.getKey());
+    }
+  }
+
+  // Editors can write a file in several steps, wait for them to finish before parsing it
+  private static final long SETTLE_MILLIS = 200;
+  private static final long MAX_WAIT_FOR_LOAD_SECONDS = 10;
+
+  private final Path directory;
+  private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+  private final CountDownLatch loaded = new CountDownLatch(1);
+  private final Thread watcherThread;
+
+  private volatile WatchService watchService;
+
+  public DatasetRegistry(Path directory) {
+    this.directory = directory;
+    this.watcherThread = new Thread(this::loadAndWatch, "dataset-registry");
+    this.watcherThread.setDaemon(true);
+  }
+
+  /**
+   * Start parsing and watching the directory in the background
+   */
+  public void start() {
+    watcherThread.start();
+  }
+
+  /**
+   * Return a dataset by the name of its file or its name in the JSON of all datasets, or null if
+   * there is no such dataset. Waits for the first parse of the directory if it is still running.
+   */
+  public Dataset get(String name) {
+    Snapshot current = awaitSnapshot();
+    return current == null ? null
+        : current.datasets.get(FILE_NAMES.getOrDefault(name, name));
+  }
+
+  /**
+   * Return a columnar dataset by name, or null if there is no such dataset. Waits for the first
+   * read of the directory if it is still running.
+   */
+  public ColumnarDataset getColumnar(String name) {
+    Snapshot current = awaitSnapshot();
+    return current == null ? null : current.columnarDatasets.get(name);
+  }
+
+  /**
+   * Return the JSON of all csv datasets by name, or null if the directory could not be read
+   */
+  public PrecomputedJson getAllJson() {
+    Snapshot current = awaitSnapshot();
+    return current == null ? null : current.allJson;
+  }
+
+  @Override
+  public void close() throws IOException {
+    watcherThread.interrupt();
+    if (watchService != null) {
+      watchService.close();
+    }
+  }
+
+  private Snapshot awaitSnapshot() {
+    try {
+      loaded.await(MAX_WAIT_FOR_LOAD_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException exc) {
+      Thread.currentThread().interrupt();
+    }
+    return snapshot.get();
+  }
+
+  /** Parse every file, then keep parsing the files that change until the registry is closed */
+  private void loadAndWatch() {
+    try {
+      // Watch before the first parse so no change made during it is missed
+      try {
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+      } catch (IOException | UnsupportedOperationException exc) {
+        // Read-only deployments have nothing to watch, the first parse is all they need
+        System.out.println("Not watching " + directory + ": " + exc);
+        watchService = null;
+      }
+
+      reloadSafely(null);
+      loaded.countDown();
+
+      while (watchService != null && !Thread.currentThread().isInterrupted()) {
+        WatchKey key = watchService.take();
+        Thread.sleep(SETTLE_MILLIS);
+
+        Set<String> changedFiles = new HashSet<>();
+        boolean overflow = false;
+        for (; key != null; key = watchService.poll()) {
+          for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+              overflow = true;
+            } else {
+              changedFiles.add(event.context().toString());
+            }
+          }
+          if (!key.reset()) {
+            // The directory is gone, keep serving the last datasets
+            return;
+          }
+        }
+
+        reloadSafely(overflow ? null : changedFiles);
+      }
+    } catch (InterruptedException | ClosedWatchServiceException exc) {
+      // The registry was closed
+    } finally {
+      loaded.countDown();
+    }
+  }
+
+  /**
+   * Read the changed files, or every file if {@code changedFiles} is null. Errors are only logged,
+   * the current datasets stay and the directory is still watched for the next change.
+   */
+  private void reloadSafely(Set<String> changedFiles) {
+    try {
+      if (changedFiles == null) {
+        reloadAll();
+      } else {
+        reload(changedFiles);
+      }
+    } catch (IOException | RuntimeException exc) {
+      System.out.println("Could not reload " + directory + ": " + exc);
+    }
+  }
+
+  /** Read every dataset file of the directory, files that fail keep their previous version */
+  private void reloadAll() throws IOException {
+    Snapshot current = snapshot.get();
+    Map<String, Dataset> datasets = new TreeMap<>();
+    Map<String, ColumnarDataset> columnarDatasets = new TreeMap<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.{csv,col}")) {
+      for (Path file : files) {
+        if (!read(file, datasets, columnarDatasets) && current != null) {
+          String fileName = file.getFileName().toString();
+          String name = fileName.substring(0, fileName.length() - 4);
+          if (fileName.endsWith(".csv") && current.datasets.containsKey(name)) {
+            datasets.put(name, current.datasets.get(name));
+          } else if (fileName.endsWith(".col") && current.columnarDatasets.containsKey(name)) {
+            columnarDatasets.put(name, current.columnarDatasets.get(name));
+          }
+        }
+      }
+    }
+    snapshot.set(new Snapshot(datasets, columnarDatasets));
+  }
+
+  /** Read the changed dataset files and drop the deleted ones */
+  private void reload(Set<String> changedFiles) throws IOException {
+    Snapshot current = snapshot.get();
+    Map<String, Dataset> datasets =
+        new TreeMap<>(current == null ? Collections.emptyMap() : current.datasets);
+    Map<String, ColumnarDataset> columnarDatasets =
+        new TreeMap<>(current == null ? Collections.emptyMap() : current.columnarDatasets);
+
+    boolean changed = false;
+    for (String fileName : changedFiles) {
+      if (!fileName.endsWith(".csv") && !fileName.endsWith(".col")) {
+        continue;
+      }
+
+      Path file = directory.resolve(fileName);
+      if (Files.exists(file)) {
+        changed |= read(file, datasets, columnarDatasets);
+      } else {
+        String name = fileName.substring(0, fileName.length() - 4);
+        Map<String, ?> removedFrom = fileName.endsWith(".csv") ? datasets : columnarDatasets;
+        changed |= removedFrom.remove(name) != null;
+      }
+    }
+
+    if (changed) {
+      snapshot.set(new Snapshot(datasets, columnarDatasets));
+    }
+  }
+
+  /** Add the dataset of a file to its map and return false if it could not be read */
+  private static boolean read(Path file, Map<String, Dataset> datasets,
+      Map<String, ColumnarDataset> columnarDatasets) {
+    try {
+      if (file.toString().endsWith(".col")) {
+        ColumnarDataset dataset = ColumnarDataset.open(file);
+        columnarDatasets.put(dataset.getName(), dataset);
+      } else {
+        Dataset dataset = Dataset.fromCsv(file);
+        datasets.put(dataset.getName(), dataset);
+      }
+      return true;
+    } catch (IOException | BadDataException | RuntimeException exc) {
+      System.out.println("Could not read " + file + ": " + exc);
+      return false;
+    }
+  }
+}
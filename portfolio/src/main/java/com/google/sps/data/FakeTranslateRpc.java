@@ -0,0 +1,102 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.data;
+
+import com.google.api.services.translate.model.DetectionsResourceItems;
+import com.google.api.services.translate.model.LanguagesResource;
+import com.google.api.services.translate.model.TranslationsResource;
+import com.google.cloud.NoCredentials;
+import com.google.cloud.translate.Translate;
+import com.google.cloud.translate.TranslateOptions;
+import com.google.cloud.translate.spi.v2.TranslateRpc;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Translation API backend that works offline. It "translates" a text by prefixing it with the
+ * target language, like {@code [es] Hello}, and supports a handful of languages. Plugging it
+ * below a real {@code Translate} client keeps the client's own behavior while making it possible
+ * to run the app without credentials. The texts of every translate call are recorded, so tests
+ * can check how the texts were batched.
+ */
+public final class FakeTranslateRpc implements TranslateRpc {
+
+  private static final String[][] LANGUAGES = {
+    {"de", "German"}, {"en", "English"}, {"es", "Spanish"}, {"fr", "French"}, {"ja", "Japanese"}
+  };
+
+  private final List<List<String>> translateCalls = new CopyOnWriteArrayList<>();
+
+  /**
+   * Return a Translate client backed by a new FakeTranslateRpc
+   */
+  public static Translate createTranslate() {
+    return createTranslate(new FakeTranslateRpc());
+  }
+
+  /**
+   * Return a Translate client backed by {@code rpc}
+   */
+  public static Translate createTranslate(FakeTranslateRpc rpc) {
+    return TranslateOptions.newBuilder()
+        .setProjectId("fake-project")
+        .setCredentials(NoCredentials.getInstance())
+        .setServiceRpcFactory(options -> rpc)
+        .build()
+        .getService();
+  }
+
+  /**
+   * Return the texts sent in each translate call so far, in the order the calls were made
+   */
+  public List<List<String>> getTranslateCalls() {
+    return new ArrayList<>(translateCalls);
+  }
+
+  @Override
+  public List<LanguagesResource> listSupportedLanguages(Map<Option, ?> optionMap) {
+    List<LanguagesResource> languages = new ArrayList<>();
+    for (String[] language : LANGUAGES) {
+      languages.add(new LanguagesResource().setLanguage(language[0]).setName(language[1]));
+    }
+    return languages;
+  }
+
+  @Override
+  public List<List<DetectionsResourceItems>> detect(List<String> texts) {
+    List<List<DetectionsResourceItems>> detections = new ArrayList<>();
+    for (String text : texts) {
+      detections.add(Collections.singletonList(
+          new DetectionsResourceItems().setLanguage("en").setConfidence(1f)));
+    }
+    return detections;
+  }
+
+  @Override
+  public List<TranslationsResource> translate(List<String> texts, Map<Option, ?> optionMap) {
+    Object targetLang = optionMap.get(Option.TARGET_LANGUAGE);
+    translateCalls.add(new ArrayList<>(texts));
+
+    List<TranslationsResource> translations = new ArrayList<>();
+    for (String text : texts) {
+      translations.add(new TranslationsResource()
+          .setTranslatedText("[" + targetLang + "] " + text)
+          .setDetectedSourceLanguage("en"));
+    }
+    return translations;
+  }
+}
@@ -14,6 +14,9 @@
 
 package com.google.sps.data;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import javax.servlet.http.HttpServletRequest;
 
 /** Servlets Utility Class. */
@@ -39,4 +42,40 @@ public final class HttpServletUtils {
     }
     return value;
   }
+
+  /**
+   * Return a strong entity tag for a response body, a quoted hash of its bytes
+   */
+  public static String etagOf(byte[] body) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+      return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + "\"";
+    } catch (NoSuchAlgorithmException exc) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(exc);
+    }
+  }
+
+  /**
+   * Return true if the If-None-Match header of the request matches the entity tag, which means
+   * the client already has the response and can be answered with 304 Not Modified
+   */
+  public static boolean matchesIfNoneMatch(HttpServletRequest request, String etag) {
+    String ifNoneMatch = request.getHeader("If-None-Match");
+    if (ifNoneMatch == null) {
+      return false;
+    }
+
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      // If-None-Match uses the weak comparison, so a weak tag matches its strong version
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if (candidate.equals("*") || candidate.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
 }
\ No newline at end of file
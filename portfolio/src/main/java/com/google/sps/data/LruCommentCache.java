@@ -0,0 +1,78 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.data;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Comment cache kept in the memory of this instance, used when Memcache is not available.
+ * Only the most recently read images are kept. Invalidations are not seen by other instances,
+ * so this is meant for a single instance like the development server.
+ *
+ * <p>Every image that is added to the cache gets a new generation, so an image that was
+ * invalidated or evicted never has the generation of its old pages again.
+ */
+public final class LruCommentCache implements CommentCache {
+
+  private final Map<String, ImagePages> pagesByImage;
+  private long lastGeneration = 0;
+
+  /** Pages of an image cached in one of its generations */
+  private static final class ImagePages {
+    private final long generation;
+    private final Map<String, CommentPage> pages = new HashMap<>();
+
+    ImagePages(long generation) {
+      this.generation = generation;
+    }
+  }
+
+  public LruCommentCache(int maxImages) {
+    // Access order makes the eldest entry the least recently used image
+    this.pagesByImage = new LinkedHashMap<String, ImagePages>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, ImagePages> eldest) {
+        return size() > maxImages;
+      }
+    };
+  }
+
+  @Override
+  public synchronized long getGeneration(String imageId) {
+    return pagesByImage.computeIfAbsent(imageId, key -> new ImagePages(++lastGeneration))
+        .generation;
+  }
+
+  @Override
+  public synchronized CommentPage get(String imageId, long generation, String pageKey) {
+    ImagePages image = pagesByImage.get(imageId);
+    return image == null || image.generation != generation ? null : image.pages.get(pageKey);
+  }
+
+  @Override
+  public synchronized void put(String imageId, long generation, String pageKey,
+      CommentPage page) {
+    ImagePages image = pagesByImage.get(imageId);
+    if (image != null && image.generation == generation) {
+      image.pages.put(pageKey, page);
+    }
+  }
+
+  @Override
+  public synchronized void invalidate(String imageId) {
+    pagesByImage.remove(imageId);
+  }
+}
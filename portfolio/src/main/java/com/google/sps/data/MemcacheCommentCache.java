@@ -0,0 +1,85 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.data;
+
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheService.SetPolicy;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+
+/**
+ * Comment cache shared by every instance of the app through Memcache. Each image has a
+ * generation number that is part of the key of its pages. Invalidating an image increments
+ * its generation, so all of its old pages stop being found at once and Memcache evicts them
+ * on its own.
+ *
+ * <p>Generations start at a timestamp instead of 0. Memcache can evict the generation of an
+ * image while its pages are still cached, and starting over from 0 would find those pages again.
+ */
+public final class MemcacheCommentCache implements CommentCache {
+
+  private static final String NAMESPACE = "comments";
+  private static final Expiration PAGE_EXPIRATION = Expiration.byDeltaSeconds(60 * 60);
+
+  private final MemcacheService memcache;
+
+  public MemcacheCommentCache() {
+    this(MemcacheServiceFactory.getMemcacheService(NAMESPACE));
+  }
+
+  public MemcacheCommentCache(MemcacheService memcache) {
+    this.memcache = memcache;
+  }
+
+  @Override
+  public long getGeneration(String imageId) {
+    String generationKey = generationKeyOf(imageId);
+    Object generation = memcache.get(generationKey);
+    if (generation == null) {
+      // Another instance can start the generation at the same time, keep the first one
+      memcache.put(generationKey, System.currentTimeMillis(), null,
+          SetPolicy.ADD_ONLY_IF_NOT_PRESENT);
+      generation = memcache.get(generationKey);
+    }
+
+    // If Memcache could not keep it, use a generation no cached page has
+    return generation == null ? System.currentTimeMillis() : ((Number) generation).longValue();
+  }
+
+  @Override
+  public CommentPage get(String imageId, long generation, String pageKey) {
+    return (CommentPage) memcache.get(pageKeyOf(imageId, generation, pageKey));
+  }
+
+  @Override
+  public void put(String imageId, long generation, String pageKey, CommentPage page) {
+    memcache.put(pageKeyOf(imageId, generation, pageKey), page, PAGE_EXPIRATION);
+  }
+
+  @Override
+  public void invalidate(String imageId) {
+    memcache.increment(generationKeyOf(imageId), 1L, System.currentTimeMillis());
+  }
+
+  /**
+   * Return the key of a page in a generation of its image
+   */
+  private static String pageKeyOf(String imageId, long generation, String pageKey) {
+    return "page:" + imageId + ":" + generation + ":" + pageKey;
+  }
+
+  private static String generationKeyOf(String imageId) {
+    return "generation:" + imageId;
+  }
+}
@@ -0,0 +1,87 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.data;
+
+import com.google.gson.Gson;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A JSON response rendered once, kept both plain and gzipped together with their strong entity
+ * tags. Sending it is a byte copy, or just a 304 status if the client already has it.
+ */
+public final class PrecomputedJson {
+
+  private final byte[] json;
+  private final byte[] gzippedJson;
+  private final String etag;
+  private final String gzipEtag;
+
+  private PrecomputedJson(byte[] json) throws IOException {
+    this.json = json;
+    this.etag = HttpServletUtils.etagOf(json);
+    // The gzipped bytes are another representation, so they need their own strong tag
+    this.gzipEtag = etag.substring(0, etag.length() - 1) + "-gzip\"";
+
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+      gzip.write(json);
+    }
+    this.gzippedJson = gzipped.toByteArray();
+  }
+
+  /**
+   * Render an object as JSON using the Gson library
+   */
+  public static PrecomputedJson of(Object object) throws IOException {
+    return new PrecomputedJson(new Gson().toJson(object).getBytes(StandardCharsets.UTF_8));
+  }
+
+  public String getEtag() {
+    return etag;
+  }
+
+  /**
+   * Send the JSON, gzipped if the client accepts it. Clients must check with the server before
+   * reusing their copy, which costs them a 304 as long as the JSON stays the same.
+   */
+  public void send(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    String acceptEncoding = request.getHeader("Accept-Encoding");
+    boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+    response.setHeader("ETag", gzip ? gzipEtag : etag);
+    response.setHeader("Cache-Control", "no-cache");
+    response.setHeader("Vary", "Accept-Encoding");
+
+    // The client already has this JSON, in either encoding since both hold the same data
+    if (HttpServletUtils.matchesIfNoneMatch(request, etag)
+        || HttpServletUtils.matchesIfNoneMatch(request, gzipEtag)) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+
+    byte[] body = gzip ? gzippedJson : json;
+    response.setContentType("application/json");
+    response.setCharacterEncoding("UTF-8");
+    if (gzip) {
+      response.setHeader("Content-Encoding", "gzip");
+    }
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
+  }
+}
@@ -0,0 +1,223 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.data;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+
+/**
+ * Aggregations over the primitive arrays of a dataset, so charts get only the points they draw.
+ * Days are counted since the epoch, like in {@link ColumnarDataset}.
+ */
+public final class SeriesAggregation {
+
+  private SeriesAggregation() {
+    throw new java.lang.UnsupportedOperationException("Utility class cannot be instantiated");
+  }
+
+  /**
+   * Return the sums as doubles
+   */
+  public static double[] asDoubles(long[] sums) {
+    double[] values = new double[sums.length];
+    for (int i = 0; i < sums.length; i++) {
+      values[i] = sums[i];
+    }
+    return values;
+  }
+
+  /**
+   * Return each sum divided by its count, 0 where the count is 0
+   */
+  public static double[] average(long[] sums, long[] counts) {
+    double[] values = new double[sums.length];
+    for (int i = 0; i < sums.length; i++) {
+      values[i] = counts[i] == 0 ? 0 : (double) sums[i] / counts[i];
+    }
+    return values;
+  }
+
+  /**
+   * Return the positions of the {@code n} largest values, largest first. Equal values keep the
+   * order of their positions.
+   */
+  public static int[] top(double[] values, int n) {
+    n = Math.min(n, values.length);
+    if (n <= 0) {
+      return new int[0];
+    }
+
+    // Min-heap of the n best positions so far, its root is the worst of them
+    int[] heap = new int[n];
+    int size = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (size < n) {
+        heap[size] = i;
+        siftUp(heap, size++, values);
+      } else if (isBefore(values, i, heap[0])) {
+        heap[0] = i;
+        siftDown(heap, size, values);
+      }
+    }
+
+    // Moving the worst position to the back each time leaves the array sorted best first
+    for (int end = size - 1; end > 0; end--) {
+      int worst = heap[0];
+      heap[0] = heap[end];
+      heap[end] = worst;
+      siftDown(heap, end, values);
+    }
+    return heap;
+  }
+
+  /**
+   * Return the bounds of the buckets of one {@code unit} between two days, both included. Weeks
+   * start on Monday and months on their first day, the first and last buckets are cut to the
+   * range. Bucket {@code b} goes from {@code bounds[b]} to {@code bounds[b + 1]}, not included.
+   */
+  public static int[] bucketBounds(int fromDay, int toDay, ChronoUnit unit) {
+    int[] bounds = new int[toDay - fromDay + 2];
+    int count = 0;
+    int day = fromDay;
+    bounds[count++] = day;
+    while (day <= toDay) {
+      day = Math.min(nextBucket(day, unit), toDay + 1);
+      bounds[count++] = day;
+    }
+    return Arrays.copyOf(bounds, count);
+  }
+
+  /**
+   * Return the sum of the daily values in each bucket, the daily values start at
+   * {@code bounds[0]}
+   */
+  public static long[] sumBuckets(long[] daily, int[] bounds) {
+    long[] sums = new long[bounds.length - 1];
+    for (int bucket = 0; bucket < sums.length; bucket++) {
+      for (int day = bounds[bucket]; day < bounds[bucket + 1]; day++) {
+        sums[bucket] += daily[day - bounds[0]];
+      }
+    }
+    return sums;
+  }
+
+  /**
+   * Return the positions of at most {@code points} points that keep the shape of a line, with
+   * Largest-Triangle-Three-Buckets. The first and last points are always kept, every bucket in
+   * between keeps the point that makes the largest triangle with the point kept before it and
+   * the average of the next bucket. {@code x} has to be increasing.
+   */
+  public static int[] downsample(int[] x, double[] y, int points) {
+    int length = y.length;
+    if (points >= length || points < 3) {
+      int[] all = new int[length];
+      for (int i = 0; i < length; i++) {
+        all[i] = i;
+      }
+      return all;
+    }
+
+    int[] kept = new int[points];
+    double bucketSize = (double) (length - 2) / (points - 2);
+    int previous = 0;
+    for (int bucket = 0; bucket < points - 2; bucket++) {
+      int start = (int) (bucket * bucketSize) + 1;
+      int end = (int) ((bucket + 1) * bucketSize) + 1;
+
+      // The average of the next bucket, the last point for the last bucket
+      int nextStart = end;
+      int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, length);
+      double averageX = 0;
+      double averageY = 0;
+      for (int i = nextStart; i < nextEnd; i++) {
+        averageX += x[i];
+        averageY += y[i];
+      }
+      averageX /= nextEnd - nextStart;
+      averageY /= nextEnd - nextStart;
+
+      double maxArea = -1;
+      int best = start;
+      for (int i = start; i < end; i++) {
+        // Twice the area, it is only compared
+        double area = Math.abs((x[previous] - averageX) * (y[i] - y[previous])
+            - (x[previous] - x[i]) * (averageY - y[previous]));
+        if (area > maxArea) {
+          maxArea = area;
+          best = i;
+        }
+      }
+      kept[bucket + 1] = best;
+      previous = best;
+    }
+    kept[points - 1] = length - 1;
+    return kept;
+  }
+
+  /** Return the first day of the bucket after the one of {@code day} */
+  private static int nextBucket(int day, ChronoUnit unit) {
+    switch (unit) {
+      case DAYS:
+        return day + 1;
+      case WEEKS:
+        return (int) LocalDate.ofEpochDay(day)
+            .with(TemporalAdjusters.next(DayOfWeek.MONDAY)).toEpochDay();
+      case MONTHS:
+        return (int) LocalDate.ofEpochDay(day)
+            .with(TemporalAdjusters.firstDayOfNextMonth()).toEpochDay();
+      default:
+        throw new IllegalArgumentException("Buckets of " + unit + " are not supported");
+    }
+  }
+
+  /** Return whether position {@code a} goes before {@code b} in the top */
+  private static boolean isBefore(double[] values, int a, int b) {
+    return values[a] > values[b] || (values[a] == values[b] && a < b);
+  }
+
+  private static void siftUp(int[] heap, int position, double[] values) {
+    int item = heap[position];
+    while (position > 0) {
+      int parent = (position - 1) >>> 1;
+      if (!isBefore(values, heap[parent], item)) {
+        break;
+      }
+      heap[position] = heap[parent];
+      position = parent;
+    }
+    heap[position] = item;
+  }
+
+  private static void siftDown(int[] heap, int size, double[] values) {
+    int item = heap[0];
+    int position = 0;
+    while (2 * position + 1 < size) {
+      int child = 2 * position + 1;
+      if (child + 1 < size && isBefore(values, heap[child], heap[child + 1])) {
+        child++;
+      }
+      if (!isBefore(values, item, heap[child])) {
+        break;
+      }
+      heap[position] = heap[child];
+      position = child;
+    }
+    heap[position] = item;
+  }
+}
@@ -0,0 +1,83 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.data;
+
+import com.google.cloud.translate.Language;
+import com.google.cloud.translate.Translate;
+import com.google.gson.Gson;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The languages supported by the Translation API, rendered as JSON. The list rarely changes, so
+ * it is only fetched again once it is older than the time to live. If fetching it again fails
+ * the old list keeps being served.
+ */
+public final class SupportedLanguagesCache {
+
+  /** The JSON of the languages and its entity tag */
+  public static final class Snapshot {
+    private final byte[] json;
+    private final String etag;
+
+    private Snapshot(byte[] json) {
+      this.json = json;
+      this.etag = HttpServletUtils.etagOf(json);
+    }
+
+    public byte[] getJson() {
+      return json;
+    }
+
+    public String getEtag() {
+      return etag;
+    }
+  }
+
+  private final Translate translate;
+  private final long timeToLiveNanos;
+
+  private Snapshot snapshot;
+  private long fetchedAtNanos;
+
+  public SupportedLanguagesCache(Translate translate, long timeToLive, TimeUnit unit) {
+    this.translate = translate;
+    this.timeToLiveNanos = unit.toNanos(timeToLive);
+  }
+
+  /**
+   * Return the supported languages, fetching them if they are missing or too old
+   */
+  public synchronized Snapshot get() {
+    long now = System.nanoTime();
+    if (snapshot != null && now - fetchedAtNanos < timeToLiveNanos) {
+      return snapshot;
+    }
+
+    try {
+      List<Language> languages = translate.listSupportedLanguages();
+      snapshot = new Snapshot(new Gson().toJson(languages).getBytes(StandardCharsets.UTF_8));
+      fetchedAtNanos = now;
+    } catch (RuntimeException exc) {
+      if (snapshot == null) {
+        throw exc;
+      }
+      // Keep serving the old list and try again after another time to live
+      System.out.println(exc);
+      fetchedAtNanos = now;
+    }
+    return snapshot;
+  }
+}
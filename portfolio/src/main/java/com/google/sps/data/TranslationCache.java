@@ -0,0 +1,52 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Translations of comments kept in memory, keyed by comment id and target language. Comments
+ * are never edited, so a translation stays valid for as long as it is cached. Only the most
+ * recently used translations are kept.
+ */
+public final class TranslationCache {
+
+  private final Map<String, String> translations;
+
+  public TranslationCache(int maxTranslations) {
+    // Access order makes the eldest entry the least recently used translation
+    this.translations = new LinkedHashMap<String, String>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+        return size() > maxTranslations;
+      }
+    };
+  }
+
+  /**
+   * Return the translation of a comment, or null if it is not cached
+   */
+  public synchronized String get(long commentId, String targetLang) {
+    return translations.get(keyOf(commentId, targetLang));
+  }
+
+  public synchronized void put(long commentId, String targetLang, String translatedText) {
+    translations.put(keyOf(commentId, targetLang), translatedText);
+  }
+
+  private static String keyOf(long commentId, String targetLang) {
+    return commentId + ":" + targetLang;
+  }
+}
@@ -17,9 +17,26 @@ package com.google.sps.servlets;
 import com.google.appengine.api.datastore.DatastoreService;
 import com.google.appengine.api.datastore.DatastoreServiceFactory;
 import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.Transaction;
+import com.google.appengine.api.datastore.TransactionOptions;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.sps.data.CommentCache;
+import com.google.sps.data.CommentCounter;
+import com.google.sps.data.CommentWriteBuffer;
 import com.google.sps.data.HttpServletUtils;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.servlet.ServletContext;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -29,6 +46,8 @@ import javax.servlet.http.HttpServletResponse;
 @WebServlet("/add-comments")
 public class AddCommentsServlet extends HttpServlet {
 
+  private static final int MAX_ATTEMPTS = 3;
+
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
     // Handle POST parameters
@@ -44,12 +63,95 @@ public class AddCommentsServlet extends HttpServlet {
 
     Entity commentEntity = createCommentEntity(username, comment, imageId);
 
-    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-    datastore.put(commentEntity);
+    CommentWriteBuffer buffer = CommentsContextListener.getCommentWriteBuffer(getServletContext());
+    if (buffer != null) {
+      // The comment is written together with the ones other requests are adding
+      buffer.add(commentEntity);
+    } else {
+      storeComments(getServletContext(), Collections.singletonList(commentEntity));
+    }
 
     response.sendRedirect("gallery.html?imageId=" + imageId + "#comments-container");
   }
 
+  /**
+   * Write new comments to Datastore, together with the counts of their images and the task that
+   * translates them, then forget the cached pages of their images. Each comment and the counter
+   * shard of each image is an entity group of the same transaction, so at most 25 of them fit.
+   */
+  static void storeComments(ServletContext context, List<Entity> commentEntities) {
+    Set<String> imageIds = writeComments(context, commentEntities);
+
+    CommentCache cache = CommentsContextListener.getCommentCache(context);
+    for (String imageId : imageIds) {
+      cache.invalidate(imageId);
+    }
+  }
+
+  /**
+   * Put the comments in a cross group transaction and return their images. Comments that are
+   * already stored, by an attempt whose commit seemed to fail, are not counted again.
+   */
+  private static Set<String> writeComments(ServletContext context, List<Entity> commentEntities) {
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    List<String> pretranslateLanguages = CommentsContextListener.getPretranslateLanguages(context);
+
+    for (int attempt = 1; ; attempt++) {
+      Transaction transaction = datastore.beginTransaction(TransactionOptions.Builder.withXG(true));
+      try {
+        List<Key> keys = new ArrayList<>();
+        for (Entity commentEntity : commentEntities) {
+          if (commentEntity.getKey().isComplete()) {
+            keys.add(commentEntity.getKey());
+          }
+        }
+        Map<Key, Entity> stored =
+            keys.isEmpty() ? Collections.emptyMap() : datastore.get(transaction, keys);
+
+        List<Entity> newComments = new ArrayList<>();
+        Map<String, Long> addedByImage = new HashMap<>();
+        for (Entity commentEntity : commentEntities) {
+          if (!stored.containsKey(commentEntity.getKey())) {
+            newComments.add(commentEntity);
+            addedByImage.merge((String) commentEntity.getProperty("imageId"), 1L, Long::sum);
+          }
+        }
+
+        datastore.put(transaction, newComments);
+        for (Map.Entry<String, Long> added : addedByImage.entrySet()) {
+          CommentCounter.add(transaction, added.getKey(), added.getValue());
+        }
+
+        // Translate the comments in the background so they are read already translated. A
+        // transaction can only add a few tasks, so a single task gets every comment.
+        if (!pretranslateLanguages.isEmpty() && !newComments.isEmpty()) {
+          TaskOptions task = TaskOptions.Builder.withUrl(TranslateCommentTaskServlet.URL);
+          for (Entity commentEntity : newComments) {
+            task.param("commentId", Long.toString(commentEntity.getKey().getId()));
+          }
+          QueueFactory.getDefaultQueue().add(transaction, task);
+        }
+
+        transaction.commit();
+
+        Set<String> imageIds = new HashSet<>();
+        for (Entity commentEntity : commentEntities) {
+          imageIds.add((String) commentEntity.getProperty("imageId"));
+        }
+        return imageIds;
+      } catch (ConcurrentModificationException exc) {
+        // Another request updated a counter shard, try again with other shards
+        if (attempt == MAX_ATTEMPTS) {
+          throw exc;
+        }
+      } finally {
+        if (transaction.isActive()) {
+          transaction.rollback();
+        }
+      }
+    }
+  }
+
   /**
    * Return a comment entity
    */
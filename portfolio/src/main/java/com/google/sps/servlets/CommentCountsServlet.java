@@ -0,0 +1,58 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.servlets;
+
+import com.google.gson.Gson;
+import com.google.sps.data.CommentCounter;
+import com.google.sps.data.HttpServletUtils;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/** Servlet that returns the number of comments of many images, like {"image.jpg": 3} */
+@WebServlet("/comment-counts")
+public class CommentCountsServlet extends HttpServlet {
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    // Comma separated image ids
+    String imageIdsParameter = HttpServletUtils.getParameter(request, "imageIds", "");
+
+    Set<String> imageIds = new LinkedHashSet<>();
+    for (String imageId : imageIdsParameter.split(",")) {
+      if (!imageId.trim().isEmpty()) {
+        imageIds.add(imageId.trim());
+      }
+    }
+
+    // Send an error message
+    if (imageIds.isEmpty() || imageIds.size() > CommentCounter.maxImagesPerGet()) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+
+    Map<String, Long> counts = CommentCounter.getCounts(new ArrayList<>(imageIds));
+
+    response.setContentType("application/json;");
+    response.setCharacterEncoding("UTF-8");
+    response.getWriter().println(new Gson().toJson(counts));
+  }
+}
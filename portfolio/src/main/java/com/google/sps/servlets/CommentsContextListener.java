@@ -0,0 +1,177 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.servlets;
+
+import com.google.cloud.translate.Translate;
+import com.google.cloud.translate.TranslateOptions;
+import com.google.sps.data.CommentCache;
+import com.google.sps.data.CommentTranslator;
+import com.google.sps.data.CommentWriteBuffer;
+import com.google.sps.data.FakeTranslateRpc;
+import com.google.sps.data.LruCommentCache;
+import com.google.sps.data.MemcacheCommentCache;
+import com.google.sps.data.SupportedLanguagesCache;
+import com.google.sps.data.TranslationCache;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/** Creates the objects shared by the comment servlets when the app starts */
+@WebListener
+public class CommentsContextListener implements ServletContextListener {
+
+  private static final String COMMENT_CACHE_ATTRIBUTE = CommentCache.class.getName();
+  private static final String COMMENT_TRANSLATOR_ATTRIBUTE = CommentTranslator.class.getName();
+  private static final String TRANSLATE_ATTRIBUTE = Translate.class.getName();
+  private static final String SUPPORTED_LANGUAGES_ATTRIBUTE =
+      SupportedLanguagesCache.class.getName();
+  private static final String PRETRANSLATE_LANGUAGES_ATTRIBUTE = "pretranslateLanguages";
+  private static final String COMMENT_WRITE_BUFFER_ATTRIBUTE = CommentWriteBuffer.class.getName();
+  private static final int MAX_CACHED_IMAGES = 256;
+  private static final int MAX_CACHED_TRANSLATIONS = 10000;
+  private static final int TRANSLATE_THREADS = 4;
+  private static final long SUPPORTED_LANGUAGES_TTL_HOURS = 24;
+  // A batch of comments is written in one cross group transaction of at most 25 entity groups,
+  // and each comment can bring the counter shard of its image
+  private static final int WRITE_BUFFER_BATCH_SIZE = 12;
+
+  private ExecutorService translateExecutor;
+
+  @Override
+  public void contextInitialized(ServletContextEvent event) {
+    ServletContext context = event.getServletContext();
+    context.setAttribute(COMMENT_CACHE_ATTRIBUTE, createCommentCache());
+
+    // Translate clients are thread safe, so a single one is shared by every servlet
+    Translate translate = createTranslate();
+    context.setAttribute(TRANSLATE_ATTRIBUTE, translate);
+    context.setAttribute(SUPPORTED_LANGUAGES_ATTRIBUTE, new SupportedLanguagesCache(
+        translate, SUPPORTED_LANGUAGES_TTL_HOURS, TimeUnit.HOURS));
+
+    translateExecutor = Executors.newFixedThreadPool(TRANSLATE_THREADS, runnable -> {
+      Thread thread = new Thread(runnable, "comment-translator");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    // Translations made when comments are added are read from the entities, so they need the
+    // stored translations too
+    List<String> pretranslateLanguages = parseLanguages(
+        System.getProperty("comments.pretranslateLanguages", ""));
+    context.setAttribute(PRETRANSLATE_LANGUAGES_ATTRIBUTE, pretranslateLanguages);
+    context.setAttribute(COMMENT_TRANSLATOR_ATTRIBUTE, new CommentTranslator(
+        translate, translateExecutor, new TranslationCache(MAX_CACHED_TRANSLATIONS),
+        Boolean.getBoolean("comments.persistTranslations") || !pretranslateLanguages.isEmpty()));
+
+    if (Boolean.getBoolean("comments.writeBehind")) {
+      context.setAttribute(COMMENT_WRITE_BUFFER_ATTRIBUTE, new CommentWriteBuffer(
+          WRITE_BUFFER_BATCH_SIZE,
+          commentEntities -> AddCommentsServlet.storeComments(context, commentEntities)));
+    }
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {
+    CommentWriteBuffer buffer = getCommentWriteBuffer(event.getServletContext());
+    if (buffer != null) {
+      buffer.flush();
+    }
+    translateExecutor.shutdownNow();
+  }
+
+  /**
+   * Return the comment cache of the app
+   */
+  public static CommentCache getCommentCache(ServletContext context) {
+    return (CommentCache) context.getAttribute(COMMENT_CACHE_ATTRIBUTE);
+  }
+
+  /**
+   * Return the Translate client shared by the app
+   */
+  public static Translate getTranslate(ServletContext context) {
+    return (Translate) context.getAttribute(TRANSLATE_ATTRIBUTE);
+  }
+
+  /**
+   * Return the cached languages supported by the Translation API
+   */
+  public static SupportedLanguagesCache getSupportedLanguages(ServletContext context) {
+    return (SupportedLanguagesCache) context.getAttribute(SUPPORTED_LANGUAGES_ATTRIBUTE);
+  }
+
+  /**
+   * Return the languages new comments are translated into when they are added. If the list is
+   * empty comments are only translated when they are read.
+   */
+  @SuppressWarnings("unchecked")
+  public static List<String> getPretranslateLanguages(ServletContext context) {
+    return (List<String>) context.getAttribute(PRETRANSLATE_LANGUAGES_ATTRIBUTE);
+  }
+
+  /**
+   * Return the buffer of new comments, or null if comments are written as soon as they are added
+   */
+  public static CommentWriteBuffer getCommentWriteBuffer(ServletContext context) {
+    return (CommentWriteBuffer) context.getAttribute(COMMENT_WRITE_BUFFER_ATTRIBUTE);
+  }
+
+  /**
+   * Return the translator of comments of the app
+   */
+  public static CommentTranslator getCommentTranslator(ServletContext context) {
+    return (CommentTranslator) context.getAttribute(COMMENT_TRANSLATOR_ATTRIBUTE);
+  }
+
+  /**
+   * Return the Translate client chosen by the comments.translate system property. "fake"
+   * translates offline, anything else uses the Cloud Translation API.
+   */
+  private static Translate createTranslate() {
+    if ("fake".equals(System.getProperty("comments.translate", "cloud"))) {
+      return FakeTranslateRpc.createTranslate();
+    }
+    return TranslateOptions.getDefaultInstance().getService();
+  }
+
+  /**
+   * Return the language codes of a comma separated list
+   */
+  private static List<String> parseLanguages(String languages) {
+    List<String> parsed = new ArrayList<>();
+    for (String language : languages.split(",")) {
+      if (!language.trim().isEmpty()) {
+        parsed.add(language.trim());
+      }
+    }
+    return Collections.unmodifiableList(parsed);
+  }
+
+  /**
+   * Return the cache chosen by the comments.cache system property, Memcache by default
+   */
+  private static CommentCache createCommentCache() {
+    if ("memory".equals(System.getProperty("comments.cache", "memcache"))) {
+      return new LruCommentCache(MAX_CACHED_IMAGES);
+    }
+    return new MemcacheCommentCache();
+  }
+}
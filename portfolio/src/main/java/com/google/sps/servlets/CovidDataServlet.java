@@ -14,70 +14,257 @@
 
 package com.google.sps.servlets;
 
-import com.google.gson.Gson;
-import com.google.sps.data.BadDataException;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.data.ColumnarDataset;
+import com.google.sps.data.Dataset;
+import com.google.sps.data.DatasetRegistry;
+import com.google.sps.data.HttpServletUtils;
+import com.google.sps.data.PrecomputedJson;
+import com.google.sps.data.SeriesAggregation;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
+import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-/** Servlet that retrieves data from csv files*/
+/**
+ * Servlet that retrieves data from csv files. Every "attribute,value" csv in the data directory
+ * is a dataset named after its file. A single dataset is returned with
+ * {@code ?dataset=<name>}, all of them by name without the parameter. The directory is set with
+ * the covidData.directory system property and defaults to WEB-INF.
+ *
+ * <p>Time series are stored in columnar files made by {@code ColumnarConverter} and are queried
+ * with {@code ?dataset=<name>&from=2020-06-01&to=2020-06-30&groupBy=attribute|day}. Grouped by
+ * attribute, the values of each attribute in the range are added up. Grouped by day, the values
+ * of each day are added up, only for {@code &attribute=<attribute>} if it is given. The dates
+ * are optional and default to the whole series.
+ *
+ * <p>The charts ask only for the points they draw:
+ * <ul>
+ *   <li>{@code top=<n>} keeps the n attributes with the largest values, largest first. It also
+ *       works on csv datasets, the other parameters are only for time series.
+ *   <li>{@code agg=sum|avg} adds up the rows of a group or averages them.
+ *   <li>{@code groupBy=week|month} puts the days of a series in buckets that start on Monday or
+ *       on the first of the month, each named after its first day in the range.
+ *   <li>{@code points=<n>} downsamples a series grouped by time to n points that keep the shape
+ *       of the line, with Largest-Triangle-Three-Buckets.
+ * </ul>
+ */
 @WebServlet("/get-covidData")
 public class CovidDataServlet extends HttpServlet {
 
+  // Keeps a series grouped by day under about 30 years of points
+  private static final int MAX_SERIES_DAYS = 366 * 30;
+
+  // The groupBy values that put the days of a series in buckets
+  private static final Map<String, ChronoUnit> BUCKET_UNITS = new HashMap<>();
+  static {
+    BUCKET_UNITS.put("day", ChronoUnit.DAYS);
+    BUCKET_UNITS.put("week", ChronoUnit.WEEKS);
+    BUCKET_UNITS.put("month", ChronoUnit.MONTHS);
+  }
+
+  // Parameters that only time series understand, csv datasets answer them with an error
+  private static final List<String> SERIES_PARAMETERS =
+      Arrays.asList("from", "to", "groupBy", "attribute", "agg", "points");
+
+  private DatasetRegistry registry;
+
   @Override
-  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    Map<String, LinkedHashMap<String, Integer>> covidData = 
-        new HashMap<String, LinkedHashMap<String, Integer>>();
-    
+  public void init() throws ServletException {
+    String directory = System.getProperty("covidData.directory");
+    if (directory == null) {
+      directory = getServletContext().getRealPath("/WEB-INF");
+    }
+    if (directory == null) {
+      throw new ServletException("The app is not unpacked, set covidData.directory");
+    }
+
+    registry = new DatasetRegistry(Paths.get(directory));
+    registry.start();
+  }
+
+  @Override
+  public void destroy() {
     try {
-      covidData.put("covidBySex", getDataFromCsv("/WEB-INF/confirmedCovidTampsBySex.csv"));
-      covidData.put("covidByMunicipality", getDataFromCsv("/WEB-INF/confirmedCovidTampsByMunicipality.csv"));
-      covidData.put("covidByAgeRange", getDataFromCsv("/WEB-INF/confirmedCovidTampsByAgeRange.csv"));
-      covidData.put("deathsByState", getDataFromCsv("/WEB-INF/deathsCovidMxByState.csv"));
-    } catch (Exception ex) {
-      System.out.println(ex);
+      registry.close();
+    } catch (IOException exc) {
+      System.out.println(exc);
+    }
+  }
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    String datasetName = HttpServletUtils.getParameter(request, "dataset", "");
+
+    PrecomputedJson json;
+    if (datasetName.isEmpty()) {
+      json = registry.getAllJson();
+    } else {
+      Dataset dataset = registry.get(datasetName);
+      if (dataset == null) {
+        ColumnarDataset series = registry.getColumnar(datasetName);
+        if (series == null) {
+          response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        } else {
+          sendSeries(request, response, series);
+        }
+        return;
+      }
+      for (String parameter : SERIES_PARAMETERS) {
+        if (request.getParameter(parameter) != null) {
+          response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+          return;
+        }
+      }
+      String top = HttpServletUtils.getParameter(request, "top", "");
+      if (!top.isEmpty()) {
+        int n;
+        try {
+          n = Integer.parseInt(top);
+        } catch (NumberFormatException exc) {
+          n = 0;
+        }
+        if (n <= 0) {
+          response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+        } else {
+          sendTop(response, dataset, n);
+        }
+        return;
+      }
+      json = dataset.getJson();
+    }
+
+    if (json == null) {
       response.sendError(500);
+      return;
     }
 
-    response.setContentType("application/json");
-    Gson gson = new Gson();
-    String data = gson.toJson(covidData);
-    response.getWriter().println(data);
+    json.send(request, response);
   }
 
   /**
-   * Get data from a csv file.
-   * The structure of the csv needs to be "attribute,value", without headers.
+   * Answer a query on a time series, as a JSON object of attribute or date to value
    */
-  private LinkedHashMap<String, Integer> getDataFromCsv(String path) throws BadDataException {
-    LinkedHashMap<String, Integer> data = new LinkedHashMap<String, Integer>();
-    
-    Scanner scanner = new Scanner(getServletContext().getResourceAsStream(path));
-    while (scanner.hasNextLine()) {
-      String line = scanner.nextLine();
-      String[] cells = line.split(",");
-
-      if (cells.length != 2) {
-        throw new BadDataException("Wrong structure of csv. Needs to be 'String,number'");
+  private void sendSeries(HttpServletRequest request, HttpServletResponse response,
+      ColumnarDataset series) throws IOException {
+    String groupBy = HttpServletUtils.getParameter(request, "groupBy", "attribute");
+    String attribute = HttpServletUtils.getParameter(request, "attribute", "");
+    String agg = HttpServletUtils.getParameter(request, "agg", "sum");
+
+    int fromDay;
+    int toDay;
+    int top;
+    int points;
+    try {
+      fromDay = parseDay(HttpServletUtils.getParameter(request, "from", ""), series.getFirstDay());
+      toDay = parseDay(HttpServletUtils.getParameter(request, "to", ""), series.getLastDay());
+      top = Integer.parseInt(HttpServletUtils.getParameter(request, "top", "0"));
+      points = Integer.parseInt(HttpServletUtils.getParameter(request, "points", "0"));
+    } catch (DateTimeParseException | NumberFormatException exc) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+
+    // Send an error message
+    boolean byAttribute = groupBy.equals("attribute");
+    ChronoUnit unit = BUCKET_UNITS.get(groupBy);
+    int attributeId = attribute.isEmpty() ? -1 : series.findAttribute(attribute);
+    if ((!byAttribute && unit == null)
+        || !(agg.equals("sum") || agg.equals("avg"))
+        || (!attribute.isEmpty() && attributeId < 0)
+        || toDay < fromDay || toDay - fromDay > MAX_SERIES_DAYS
+        || top < 0 || (top > 0 && !byAttribute)
+        || (points != 0 && (points < 3 || byAttribute))) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+    boolean average = agg.equals("avg");
+
+    response.setContentType("application/json");
+    response.setCharacterEncoding("UTF-8");
+    JsonWriter writer = new JsonWriter(response.getWriter());
+    writer.beginObject();
+    if (byAttribute) {
+      long[] sums = series.sumByAttribute(fromDay, toDay);
+      double[] values = average
+          ? SeriesAggregation.average(sums, series.countByAttribute(fromDay, toDay))
+          : SeriesAggregation.asDoubles(sums);
+
+      List<String> attributes = series.getAttributes();
+      int[] shown = top > 0 ? SeriesAggregation.top(values, top) : allPositions(values.length);
+      for (int id : shown) {
+        writeValue(writer.name(attributes.get(id)), values[id], average);
+      }
+    } else {
+      int[] bounds = SeriesAggregation.bucketBounds(fromDay, toDay, unit);
+      long[] sums =
+          SeriesAggregation.sumBuckets(series.sumByDay(fromDay, toDay, attributeId), bounds);
+      double[] values = average
+          ? SeriesAggregation.average(sums, SeriesAggregation.sumBuckets(
+              series.countByDay(fromDay, toDay, attributeId), bounds))
+          : SeriesAggregation.asDoubles(sums);
+
+      int[] shown = points > 0
+          ? SeriesAggregation.downsample(bounds, values, points) : allPositions(values.length);
+      for (int bucket : shown) {
+        String date = LocalDate.ofEpochDay(bounds[bucket]).toString();
+        writeValue(writer.name(date), values[bucket], average);
       }
+    }
+    writer.endObject();
+    writer.flush();
+  }
 
-      String attribute = cells[0];
-      Integer value = Integer.parseInt(cells[1]);
+  /**
+   * Answer a query on a csv dataset that has to be computed, as a JSON object of attribute to
+   * value
+   */
+  private void sendTop(HttpServletResponse response, Dataset dataset, int top)
+      throws IOException {
+    response.setContentType("application/json");
+    response.setCharacterEncoding("UTF-8");
+    JsonWriter writer = new JsonWriter(response.getWriter());
+    writer.beginObject();
+    for (Map.Entry<String, Integer> entry : dataset.top(top).entrySet()) {
+      writer.name(entry.getKey()).value(entry.getValue());
+    }
+    writer.endObject();
+    writer.flush();
+  }
 
-      data.put(attribute, value);
+  /** Write a sum as an integer and an average as a decimal number */
+  private static void writeValue(JsonWriter writer, double value, boolean average)
+      throws IOException {
+    if (average) {
+      writer.value(value);
+    } else {
+      writer.value((long) value);
     }
-    scanner.close();
+  }
 
-    if (data.isEmpty()) {
-      throw new BadDataException("The csv file was empty");
+  /** Return the positions of an array in order */
+  private static int[] allPositions(int length) {
+    int[] positions = new int[length];
+    for (int i = 0; i < length; i++) {
+      positions[i] = i;
     }
+    return positions;
+  }
 
-    return data;
+  /**
+   * Return the days since the epoch of a date like 2020-06-30, or the default for no date
+   */
+  private static int parseDay(String date, int defaultDay) {
+    return date.isEmpty() ? defaultDay : (int) LocalDate.parse(date).toEpochDay();
   }
 }
@@ -17,15 +17,21 @@ package com.google.sps.servlets;
 import com.google.appengine.api.datastore.DatastoreService;
 import com.google.appengine.api.datastore.DatastoreServiceFactory;
 import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
 import com.google.appengine.api.datastore.Key;
-import com.google.appengine.api.datastore.KeyFactory;
-import com.google.appengine.api.datastore.PreparedQuery;
 import com.google.appengine.api.datastore.Query;
-import com.google.appengine.api.datastore.Query.Filter;
 import com.google.appengine.api.datastore.Query.FilterOperator;
+import com.google.appengine.api.datastore.Transaction;
+import com.google.appengine.api.datastore.TransactionOptions;
 import com.google.gson.Gson;
+import com.google.sps.data.CommentCounter;
 import com.google.sps.data.HttpServletUtils;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Set;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -35,6 +41,12 @@ import javax.servlet.http.HttpServletResponse;
 @WebServlet("/delete-comments")
 public class DeleteCommentsServlet extends HttpServlet {
 
+  // A cross group transaction spans at most 25 entity groups, each comment is one and the
+  // counter shard of the image is another
+  private static final int DELETE_BATCH_SIZE = 24;
+  private static final int QUERY_CHUNK_SIZE = 500;
+  private static final int MAX_ATTEMPTS = 3;
+
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
     String imageId = HttpServletUtils.getParameter(request, "imageId", "");
@@ -45,15 +57,72 @@ public class DeleteCommentsServlet extends HttpServlet {
       return;
     }
     
-    // Filter comments by image id
-    Query fetchComments = new Query("Comment");
+    // Only the keys are needed to delete the comments
+    Query fetchComments = new Query("Comment").setKeysOnly();
     fetchComments.addFilter("imageId", FilterOperator.EQUAL, imageId);
 
+    int deletedCount = deleteInBatches(imageId, fetchComments);
+    CommentsContextListener.getCommentCache(getServletContext()).invalidate(imageId);
+
+    response.setContentType("application/json;");
+    response.setCharacterEncoding("UTF-8");
+    response.getWriter().println(
+        new Gson().toJson(Collections.singletonMap("deleted", deletedCount)));
+  }
+
+  /**
+   * Delete the comments found by a keys only query and return how many were deleted. The keys
+   * are read in large chunks and deleted in small transactions that also update the count.
+   */
+  private int deleteInBatches(String imageId, Query keysOnlyQuery) {
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    Iterable<Entity> entities = datastore.prepare(keysOnlyQuery)
+        .asIterable(FetchOptions.Builder.withChunkSize(QUERY_CHUNK_SIZE));
+
+    List<Key> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+    int deletedCount = 0;
+    for (Entity entity : entities) {
+      batch.add(entity.getKey());
+      if (batch.size() == DELETE_BATCH_SIZE) {
+        deletedCount += deleteBatch(imageId, batch);
+        batch = new ArrayList<>(DELETE_BATCH_SIZE);
+      }
+    }
+    if (!batch.isEmpty()) {
+      deletedCount += deleteBatch(imageId, batch);
+    }
+    return deletedCount;
+  }
+
+  /**
+   * Delete the comments that still exist and take them off the count of their image, in a cross
+   * group transaction. The query that found the keys is only eventually consistent, so comments
+   * that another request deleted first are not counted again. Return how many were deleted.
+   */
+  private static int deleteBatch(String imageId, List<Key> keys) {
     DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-    PreparedQuery commentsRetrieved = datastore.prepare(fetchComments);
+    for (int attempt = 1; ; attempt++) {
+      Transaction transaction = datastore.beginTransaction(TransactionOptions.Builder.withXG(true));
+      try {
+        Set<Key> existing = datastore.get(transaction, keys).keySet();
+        if (existing.isEmpty()) {
+          return 0;
+        }
 
-    for (Entity commentEntity : commentsRetrieved.asIterable()) {
-      datastore.delete(commentEntity.getKey());
+        datastore.delete(transaction, existing);
+        CommentCounter.add(transaction, imageId, -existing.size());
+        transaction.commit();
+        return existing.size();
+      } catch (ConcurrentModificationException exc) {
+        // Another request changed a comment or the counter shard, try again
+        if (attempt == MAX_ATTEMPTS) {
+          throw exc;
+        }
+      } finally {
+        if (transaction.isActive()) {
+          transaction.rollback();
+        }
+      }
     }
   }
 }
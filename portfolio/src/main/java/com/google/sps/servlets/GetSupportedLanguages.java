@@ -14,31 +14,40 @@
 
 package com.google.sps.servlets;
 
-import com.google.cloud.translate.Language;
-import com.google.cloud.translate.Translate;
-import com.google.cloud.translate.TranslateOptions;
-import com.google.gson.Gson;
+import com.google.sps.data.HttpServletUtils;
+import com.google.sps.data.SupportedLanguagesCache;
 import java.io.IOException;
-import java.util.List;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-/** Servlet that returns a list of languages supported by Google Translation  */
+/**
+ * Servlet that returns a list of languages supported by Google Translation. The list is cached
+ * by the server and can be cached for a day by browsers and proxies.
+ */
 @WebServlet("/get-supported-languages")
 public class GetSupportedLanguages extends HttpServlet {
 
+  private static final String CACHE_CONTROL = "public, max-age=86400";
+
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    Translate translate = TranslateOptions.getDefaultInstance().getService();
+    SupportedLanguagesCache.Snapshot languages =
+        CommentsContextListener.getSupportedLanguages(getServletContext()).get();
 
-    List<Language> languages = translate.listSupportedLanguages();
+    response.setHeader("ETag", languages.getEtag());
+    response.setHeader("Cache-Control", CACHE_CONTROL);
 
-    Gson gson = new Gson();
+    // The client already has this list
+    if (HttpServletUtils.matchesIfNoneMatch(request, languages.getEtag())) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
 
     response.setContentType("application/json;");
     response.setCharacterEncoding("UTF-8");
-    response.getWriter().println(gson.toJson(languages));
+    response.setContentLength(languages.getJson().length);
+    response.getOutputStream().write(languages.getJson());
   }
 }
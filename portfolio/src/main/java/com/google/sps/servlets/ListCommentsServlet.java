@@ -14,23 +14,27 @@
 
 package com.google.sps.servlets;
 
+import com.google.appengine.api.datastore.Cursor;
 import com.google.appengine.api.datastore.DatastoreService;
 import com.google.appengine.api.datastore.DatastoreServiceFactory;
 import com.google.appengine.api.datastore.Entity;
 import com.google.appengine.api.datastore.FetchOptions;
 import com.google.appengine.api.datastore.PreparedQuery;
+import com.google.appengine.api.datastore.PropertyProjection;
 import com.google.appengine.api.datastore.Query;
 import com.google.appengine.api.datastore.Query.Filter;
 import com.google.appengine.api.datastore.Query.FilterOperator;
 import com.google.appengine.api.datastore.Query.SortDirection;
-import com.google.cloud.translate.Translate;
+import com.google.appengine.api.datastore.QueryResultList;
 import com.google.cloud.translate.TranslateException;
-import com.google.cloud.translate.TranslateOptions;
-import com.google.cloud.translate.Translation;
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import com.google.sps.data.Comment;
+import com.google.sps.data.CommentCache;
+import com.google.sps.data.CommentPage;
 import com.google.sps.data.HttpServletUtils;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -43,14 +47,18 @@ import javax.servlet.http.HttpServletResponse;
 @WebServlet("/get-comments")
 public class ListCommentsServlet extends HttpServlet {
 
+  private static final String[] COMPACT_FIELDS = {"id", "username", "text", "date"};
+
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
     // Handle GET parameters
     String commentPicId = HttpServletUtils.getParameter(request, "imageId", "");
-    int fetchQuantity = Integer.parseInt(HttpServletUtils.getParameter(request, "quantity", "5"));
+    String quantity = HttpServletUtils.getParameter(request, "quantity", "5");
     boolean isDateDescending = Boolean.parseBoolean(
         HttpServletUtils.getParameter(request, "dateDescending", "false"));
     String language = HttpServletUtils.getParameter(request, "language", "");
+    String cursor = HttpServletUtils.getParameter(request, "cursor", "");
+    boolean isCompact = HttpServletUtils.getParameter(request, "format", "").equals("compact");
 
     // A pic id is needed to continue
     if (commentPicId.isEmpty()) {
@@ -58,20 +66,54 @@ public class ListCommentsServlet extends HttpServlet {
       return;
     }
 
-    Query fetchComments = buildQuery(commentPicId, isDateDescending);
+    // An empty page would have the same cursor it started with, so at least one comment is needed
+    int fetchQuantity;
+    try {
+      fetchQuantity = Integer.parseInt(quantity);
+    } catch (NumberFormatException exc) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+    if (fetchQuantity < 1) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
 
-    Iterable<Entity> commentsRetrieved = retrieveComments(fetchComments, fetchQuantity);
+    // Pages are cached untranslated, so the language is not part of the key
+    CommentCache cache = CommentsContextListener.getCommentCache(getServletContext());
+    String pageKey = clampQuantity(fetchQuantity) + ":" + isDateDescending + ":" + cursor;
+
+    long generation = cache.getGeneration(commentPicId);
+    CommentPage page = cache.get(commentPicId, generation, pageKey);
+    if (page == null) {
+      Query fetchComments = buildQuery(commentPicId, isDateDescending);
+
+      QueryResultList<Entity> commentsRetrieved;
+      try {
+        commentsRetrieved = retrieveComments(fetchComments, fetchQuantity, cursor);
+      } catch (IllegalArgumentException exc) {
+        // The cursor was not valid for this query
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+        return;
+      }
 
-    List<Comment> comments = createCommentsList(commentsRetrieved);
+      page = new CommentPage(createCommentsList(commentsRetrieved, commentPicId),
+          getNextCursor(commentsRetrieved, fetchQuantity));
+      cache.put(commentPicId, generation, pageKey, page);
+    }
 
     // Translate comments if a target language was provided
     if (!language.isEmpty()) {
-      translateComments(comments, language);
+      page = new CommentPage(translateComments(page.getComments(), language), page.getNextCursor());
     }
 
     response.setContentType("application/json;");
     response.setCharacterEncoding("UTF-8");
-    response.getWriter().println(convertListToJson(comments));
+    if (isCompact) {
+      writeCompactJson(page, response.getWriter());
+    } else {
+      response.getWriter().println(convertToJson(page));
+    }
   }
 
   /**
@@ -79,6 +121,14 @@ public class ListCommentsServlet extends HttpServlet {
    */
   private Query buildQuery(String commentPicId, boolean isDateDescending) {
     Query query = new Query("Comment");
+
+    // Only fetch the rendered fields, the entities can also hold many translations. The image id
+    // is already known from the filter. This needs the indexes in datastore-indexes.xml.
+    if (Boolean.getBoolean("comments.projectionQueries")) {
+      query.addProjection(new PropertyProjection("username", String.class));
+      query.addProjection(new PropertyProjection("comment", String.class));
+      query.addProjection(new PropertyProjection("date", Date.class));
+    }
     
     // Sort by date
     query.addSort("date", isDateDescending ? SortDirection.DESCENDING : SortDirection.ASCENDING);
@@ -90,30 +140,49 @@ public class ListCommentsServlet extends HttpServlet {
   }
 
   /**
-   * Return the results of a query with a limit
+   * Return the results of a query with a limit, starting where the cursor points to.
+   * An empty cursor starts from the first result.
    */
-  private Iterable<Entity> retrieveComments(Query fetchComments, int quantity) {
-    if (quantity < 0) {
-      quantity = 0;
-    } else if (quantity > 20) {
-      quantity = 20;
+  private QueryResultList<Entity> retrieveComments(
+      Query fetchComments, int quantity, String cursor) {
+    FetchOptions fetchOptions = FetchOptions.Builder.withLimit(clampQuantity(quantity));
+    if (!cursor.isEmpty()) {
+      fetchOptions.startCursor(Cursor.fromWebSafeString(cursor));
     }
 
     DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-    return datastore.prepare(fetchComments).asIterable(FetchOptions.Builder.withLimit(quantity));
+    return datastore.prepare(fetchComments).asQueryResultList(fetchOptions);
   }
 
   /**
-   * Return a List with comments retrieved by a query
+   * Return the cursor of the page after the results, or null if there are no more results
    */
-  private List<Comment> createCommentsList(Iterable<Entity> commentsRetrieved) {
+  private String getNextCursor(QueryResultList<Entity> commentsRetrieved, int quantity) {
+    // A page shorter than requested means the query ran out of results
+    Cursor nextCursor = commentsRetrieved.getCursor();
+    if (commentsRetrieved.size() < clampQuantity(quantity) || nextCursor == null) {
+      return null;
+    }
+    return nextCursor.toWebSafeString();
+  }
+
+  /**
+   * Keep the quantity of comments per page at most 20
+   */
+  private int clampQuantity(int quantity) {
+    return Math.min(quantity, 20);
+  }
+
+  /**
+   * Return a List with comments of an image retrieved by a query
+   */
+  private List<Comment> createCommentsList(Iterable<Entity> commentsRetrieved, String imageId) {
     List<Comment> comments = new ArrayList<>();
     for (Entity commentEntity : commentsRetrieved) {
       long id = commentEntity.getKey().getId();
       String username = (String) commentEntity.getProperty("username");
       String comment = (String) commentEntity.getProperty("comment");
-      String imageId = (String) commentEntity.getProperty("imageId");
-      Date date = (Date) commentEntity.getProperty("date");
+      long date = ((Date) commentEntity.getProperty("date")).getTime();
 
       comments.add(new Comment(id, username, comment, imageId, date));
     }
@@ -122,29 +191,56 @@ public class ListCommentsServlet extends HttpServlet {
   }
 
   /**
-   * Translate comments using the Cloud Translation API
+   * Return translated copies of the comments using the Cloud Translation API.
+   * The comments themselves are left untouched because they can be shared by the cache.
+   * If the translation fails the original comments are returned.
    */
-  private void translateComments(List<Comment> comments, String targetLang) {
+  private List<Comment> translateComments(List<Comment> comments, String targetLang) {
     try {
-      Translate translate = TranslateOptions.getDefaultInstance().getService();
-      
-      for (Comment comment : comments) {
-        Translation translation = translate.translate(
-            comment.getText(),
-            Translate.TranslateOption.targetLanguage(targetLang));
-
-        comment.setText(translation.getTranslatedText());
-      }
+      return CommentsContextListener.getCommentTranslator(getServletContext())
+          .translate(comments, targetLang);
     } catch (TranslateException exc) {
       System.out.println(exc);
+      return comments;
     }
   }
 
   /**
-   * Converts a list into a JSON string using the Gson library.
+   * Write a page with each comment as an array of its fields instead of an object, so the field
+   * names are only sent once:
+   * {"fields": ["id", "username", "text", "date"], "comments": [[...], ...], "nextCursor": ...}
+   */
+  private void writeCompactJson(CommentPage page, Writer out) throws IOException {
+    JsonWriter writer = new JsonWriter(out);
+    writer.beginObject();
+
+    writer.name("fields").beginArray();
+    for (String field : COMPACT_FIELDS) {
+      writer.value(field);
+    }
+    writer.endArray();
+
+    writer.name("comments").beginArray();
+    for (Comment comment : page.getComments()) {
+      writer.beginArray()
+          .value(comment.getId())
+          .value(comment.getUsername())
+          .value(comment.getText())
+          .value(comment.getDate())
+          .endArray();
+    }
+    writer.endArray();
+
+    writer.name("nextCursor").value(page.getNextCursor());
+    writer.endObject();
+    writer.flush();
+  }
+
+  /**
+   * Converts an object into a JSON string using the Gson library.
    */
-  private String convertListToJson(List list) {
+  private String convertToJson(Object object) {
     Gson gson = new Gson();
-    return gson.toJson(list);
+    return gson.toJson(object);
   }
 }
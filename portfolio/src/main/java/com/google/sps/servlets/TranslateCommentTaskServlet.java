@@ -0,0 +1,63 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.servlets;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Task Queue worker that translates new comments into the popular languages and stores the
+ * translations in their entities. Any error makes the task fail, so the queue tries it again.
+ */
+@WebServlet(TranslateCommentTaskServlet.URL)
+public class TranslateCommentTaskServlet extends HttpServlet {
+
+  public static final String URL = "/tasks/translate-comment";
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    // App Engine removes this header from requests that do not come from a task queue
+    if (request.getHeader("X-AppEngine-TaskName") == null) {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN);
+      return;
+    }
+
+    // A task can carry every comment written in the same batch
+    String[] commentIdParameters = request.getParameterValues("commentId");
+    if (commentIdParameters == null) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+    List<Long> commentIds = new ArrayList<>();
+    try {
+      for (String commentId : commentIdParameters) {
+        commentIds.add(Long.parseLong(commentId));
+      }
+    } catch (NumberFormatException exc) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+
+    // Every language is translated for all the comments at once, and the languages that a
+    // retried task already stored are skipped
+    List<String> languages = CommentsContextListener.getPretranslateLanguages(getServletContext());
+    CommentsContextListener.getCommentTranslator(getServletContext())
+        .pretranslate(commentIds, languages);
+  }
+}
@@ -91,28 +91,51 @@ const GEO_OPTIONS = {
   title: ''
 };
 
-/** Fetches covid data and uses it to create a chart. */
+/**
+ * The charts of the page and the dataset each one shows. The query, if any, is
+ * added to the request so the server only sends the points the chart draws.
+ * @const {!Array<{dataset: string,
+ *     query: (!Object<string, (string|number)>|undefined), title: string,
+ *     col1: string, col2: string, chartType: string, container: string}>}
+ */
+const CHARTS = [
+  {
+    dataset: 'confirmedCovidTampsBySex',
+    title: 'Covid-19 Cases: Women and Men', col1: 'Sex', col2: 'Covid-19 Cases',
+    chartType: 'DonutChart', container: 'covidBySex-container'
+  },
+  {
+    dataset: 'confirmedCovidTampsByMunicipality',
+    title: 'Covid-19 Cases by Municipality', col1: 'Municipality', col2: 'Covid-19 Cases',
+    chartType: 'BarChart', container: 'covidByMunicipality-container'
+  },
+  {
+    dataset: 'confirmedCovidTampsByAgeRange',
+    title: 'Covid-19 Cases by Age Range', col1: 'Case', col2: 'Age',
+    chartType: 'Histogram', container: 'covidByAgeRange-container'
+  },
+  {
+    dataset: 'deathsCovidMxByState',
+    title: 'Mexico: Deaths by State', col1: 'State', col2: 'Deaths by Covid-19',
+    chartType: 'GeoChart', container: 'covidByState-container'
+  }
+];
+
+/** Fetches the dataset of each chart and uses it to create the chart. */
 function drawCharts() {
-  fetch('/get-covidData').then(response => {
-    if (response.status === 200) {
-      response.json().then((covidData) => {
-        createChart(covidData['covidBySex'],
-            'Covid-19 Cases: Women and Men', 'Sex', 'Covid-19 Cases',
-            'DonutChart', 'covidBySex-container');
-        createChart(covidData['covidByMunicipality'],
-            'Covid-19 Cases by Municipality', 'Municipality', 'Covid-19 Cases',
-            'BarChart', 'covidByMunicipality-container');
-        createChart(covidData['covidByAgeRange'],
-            'Covid-19 Cases by Age Range', 'Case', 'Age',
-            'Histogram', 'covidByAgeRange-container');
-        createChart(covidData['deathsByState'],
-            'Mexico: Deaths by State', 'State', 'Deaths by Covid-19',
-            'GeoChart', 'covidByState-container');
-      });
-    } else {
-      alert('Sorry, something went wrong. Try again later')
-    }
-  });
+  for (const chart of CHARTS) {
+    const params = new URLSearchParams({dataset: chart.dataset, ...chart.query});
+    fetch(`/get-covidData?${params.toString()}`).then(response => {
+      if (response.status === 200) {
+        response.json().then((covidData) => {
+          createChart(covidData, chart.title, chart.col1, chart.col2,
+              chart.chartType, chart.container);
+        });
+      } else {
+        alert('Sorry, something went wrong. Try again later')
+      }
+    });
+  }
 }
 
 /** 
@@ -20,9 +20,16 @@ const GET_PARAMS = new URLSearchParams ({
   imageId: '',
   quantity: '5',
   dateDescending: 'true',
-  language: ''
+  language: '',
+  format: 'compact'
 });
 
+/**
+ * The cursor of the next page of comments, null when there are no more
+ * @type {?string}
+ */
+let nextCursor = null;
+
 /**
  * Delete all the comments
  */
@@ -42,15 +49,27 @@ function deleteAllComments(imageId) {
 
 /**
  * Fetches comments from the server and adds them to the DOM.
+ * @param {boolean=} nextPage Append the page after the current one
+ *     instead of starting again from the first page
  */
-function getComments() {
-  fetch(`/get-comments?${GET_PARAMS.toString()}`).then((response) => {
+function getComments(nextPage = false) {
+  const params = new URLSearchParams(GET_PARAMS);
+  if (nextPage && nextCursor) {
+    params.set('cursor', nextCursor);
+  }
+
+  fetch(`/get-comments?${params.toString()}`).then((response) => {
     if (response.status === 200) {
-      response.json().then((comments) => {
+      response.json().then((page) => {
         const commentsContainer = document.querySelector('#comments-container');
-        
-        removeCommentsFromDom(commentsContainer);
-        addCommentsToDom(comments, commentsContainer);
+
+        if (!nextPage) {
+          removeCommentsFromDom(commentsContainer);
+        }
+        addCommentsToDom(expandComments(page), commentsContainer);
+
+        nextCursor = page.nextCursor;
+        document.getElementById('more-comments').hidden = !nextCursor;
       });
     }
     else {
@@ -60,6 +79,21 @@ function getComments() {
   });
 }
 
+/**
+ * Turns the comments of a compact page, arrays of field values, into objects
+ * @param {{fields: !Array<string>, comments: !Array<!Array>}} page The page
+ * @return {!Array<{Object}>} The comments
+ */
+function expandComments(page) {
+  return page.comments.map((values) => {
+    const comment = {};
+    page.fields.forEach((field, index) => {
+      comment[field] = values[index];
+    });
+    return comment;
+  });
+}
+
 /**
  * Remove children of a HTML node
  * @param {Element} node The HTML node, element.
@@ -82,8 +116,9 @@ function addCommentsToDom(comments, container) {
     const newComment = commentTemplate.content.cloneNode(true);
 
     newComment.querySelector('h4').textContent = comment.username;
-    newComment.querySelector('span').textContent = comment.date;
-    newComment.querySelector('p').textContent = comment.comment;
+    // Dates arrive in milliseconds since the epoch
+    newComment.querySelector('span').textContent = new Date(comment.date).toLocaleString();
+    newComment.querySelector('p').textContent = comment.text;
 
     container.appendChild(newComment);
   }
@@ -143,6 +178,11 @@ function init() {
     getComments();
   });
 
+  // Listen to when more comments are asked for
+  document.getElementById('more-comments').addEventListener('click', () => {
+    getComments(true);
+  });
+
   // Listen to when the delete buttons is clicked
   document.getElementById('delete-comments').addEventListener('click', (event) => {
     deleteAllComments(event.target.value);
@@ -104,6 +104,24 @@ function addImagesToGallery() {
   }
 }
 
+/**
+ * Show how many comments each image of the gallery has when hovering it
+ */
+function addCommentCountsToGallery() {
+  const imageIds = GALLERY_PICS.map((pic) => pic.id).join(',');
+
+  fetch(`/comment-counts?imageIds=${encodeURIComponent(imageIds)}`).then((response) => {
+    if (response.status === 200) {
+      response.json().then((counts) => {
+        for (const [imageId, count] of Object.entries(counts)) {
+          document.getElementById(imageId).title =
+              count === 1 ? '1 comment' : `${count} comments`;
+        }
+      });
+    }
+  });
+}
+
 /**
  * Expand the clicked image and show comments section
  * @param {Element} image The img element of the clicked image
@@ -137,6 +155,7 @@ function closeImg() {
 document.addEventListener('DOMContentLoaded', () => {
   // DOM is ready!
   addImagesToGallery();
+  addCommentCountsToGallery();
   hasQueryString('imageId', () => {
     expandImg(document.getElementById(QUERY_STRING.get('imageId')));
   });
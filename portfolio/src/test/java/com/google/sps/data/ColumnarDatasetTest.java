@@ -0,0 +1,137 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class ColumnarDatasetTest {
+  private static final int JUNE_1 = (int) LocalDate.parse("2020-06-01").toEpochDay();
+
+  // Out of order, with a day without rows (June 3) and a name with a comma
+  private static final String CSV = "2020-06-04,Reynosa,7\n"
+      + "2020-06-01,Reynosa,1\n"
+      + "2020-06-01,\"Victoria, Tamps\",2\n"
+      + "2020-06-02,Madero,3\n"
+      + "2020-06-04,\"Victoria, Tamps\",-4\n";
+  private static final int ROWS = 5;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path columnar;
+
+  @Before
+  public void setUp() throws Exception {
+    Path csv = folder.getRoot().toPath().resolve("cases.csv");
+    Files.write(csv, CSV.getBytes(StandardCharsets.UTF_8));
+    columnar = folder.getRoot().toPath().resolve("cases.col");
+    Assert.assertEquals(ROWS, ColumnarConverter.convert(csv, columnar));
+  }
+
+  @Test
+  public void convertedFileReadsBackTheCsv() throws Exception {
+    ColumnarDataset dataset = ColumnarDataset.open(columnar);
+
+    Assert.assertEquals("cases", dataset.getName());
+    Assert.assertEquals(ROWS, dataset.getRowCount());
+    Assert.assertEquals(JUNE_1, dataset.getFirstDay());
+    Assert.assertEquals(JUNE_1 + 3, dataset.getLastDay());
+    Assert.assertEquals(
+        Arrays.asList("Reynosa", "Victoria, Tamps", "Madero"), dataset.getAttributes());
+
+    int reynosa = dataset.findAttribute("Reynosa");
+    int victoria = dataset.findAttribute("Victoria, Tamps");
+    int madero = dataset.findAttribute("Madero");
+    Assert.assertEquals(-1, dataset.findAttribute("Tampico"));
+
+    long[] sums = dataset.sumByAttribute(JUNE_1, JUNE_1 + 3);
+    Assert.assertEquals(8, sums[reynosa]);
+    Assert.assertEquals(-2, sums[victoria]);
+    Assert.assertEquals(3, sums[madero]);
+
+    // Days outside of the data have no rows
+    Assert.assertArrayEquals(new long[] {0, 3, 3, 0, 3, 0},
+        dataset.sumByDay(JUNE_1 - 1, JUNE_1 + 4, -1));
+    Assert.assertArrayEquals(new long[] {1, 0, 0, 7},
+        dataset.sumByDay(JUNE_1, JUNE_1 + 3, reynosa));
+    Assert.assertArrayEquals(new long[] {2, 1, 0, 2},
+        dataset.countByDay(JUNE_1, JUNE_1 + 3, -1));
+
+    long[] counts = dataset.countByAttribute(JUNE_1 + 1, JUNE_1 + 3);
+    Assert.assertEquals(1, counts[reynosa]);
+    Assert.assertEquals(1, counts[victoria]);
+    Assert.assertEquals(1, counts[madero]);
+  }
+
+  @Test
+  public void truncatedFileIsRejected() throws Exception {
+    byte[] bytes = Files.readAllBytes(columnar);
+    Files.write(columnar, Arrays.copyOf(bytes, bytes.length - Integer.BYTES));
+
+    assertRejected();
+  }
+
+  @Test
+  public void unknownAttributeIdIsRejected() throws Exception {
+    // The attribute column is right before the value column, at the end of the file
+    ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(columnar));
+    bytes.putInt(bytes.limit() - 2 * ROWS * Integer.BYTES, 3);
+    Files.write(columnar, bytes.array());
+
+    assertRejected();
+  }
+
+  @Test
+  public void dayIndexOutOfOrderIsRejected() throws Exception {
+    // The day index follows the header, its second day cannot start after every row
+    ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(columnar));
+    bytes.putInt((ColumnarDataset.HEADER_INTS + 1) * Integer.BYTES, ROWS + 1);
+    Files.write(columnar, bytes.array());
+
+    assertRejected();
+  }
+
+  @Test
+  public void rowCountLargerThanTheFileIsRejected() throws Exception {
+    ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(columnar));
+    bytes.putInt(2 * Integer.BYTES, Integer.MAX_VALUE);
+    Files.write(columnar, bytes.array());
+
+    assertRejected();
+  }
+
+  private void assertRejected() throws Exception {
+    try {
+      ColumnarDataset.open(columnar);
+      Assert.fail("Expected a BadDataException");
+    } catch (BadDataException expected) {
+      // The file is corrupt
+    }
+  }
+}
@@ -0,0 +1,190 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.apphosting.api.ApiProxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class CommentCacheTest {
+  private static final String IMAGE_ID = "pic-1";
+  private static final String PAGE_KEY = "5:false:";
+
+  private final LocalServiceTestHelper helper =
+      new LocalServiceTestHelper(new LocalMemcacheServiceTestConfig());
+
+  @Before
+  public void setUp() {
+    helper.setUp();
+  }
+
+  @After
+  public void tearDown() {
+    helper.tearDown();
+  }
+
+  @Test
+  public void lruPageIsFoundUntilInvalidated() {
+    assertPageIsFoundUntilInvalidated(new LruCommentCache(10));
+  }
+
+  @Test
+  public void memcachePageIsFoundUntilInvalidated() {
+    assertPageIsFoundUntilInvalidated(new MemcacheCommentCache());
+  }
+
+  @Test
+  public void lruFillAfterInvalidationIsNotFound() {
+    assertFillAfterInvalidationIsNotFound(new LruCommentCache(10));
+  }
+
+  @Test
+  public void memcacheFillAfterInvalidationIsNotFound() {
+    assertFillAfterInvalidationIsNotFound(new MemcacheCommentCache());
+  }
+
+  @Test
+  public void lruEvictedImageDoesNotGetItsGenerationBack() {
+    LruCommentCache cache = new LruCommentCache(1);
+    long generation = cache.getGeneration(IMAGE_ID);
+    cache.put(IMAGE_ID, generation, PAGE_KEY, page(1));
+
+    // Reading another image evicts the first one
+    cache.getGeneration("pic-2");
+
+    Assert.assertNotEquals(generation, cache.getGeneration(IMAGE_ID));
+    Assert.assertNull(cache.get(IMAGE_ID, generation, PAGE_KEY));
+  }
+
+  @Test
+  public void lruNoStalePageWhileFillsRaceWithInvalidations() throws Exception {
+    assertNoStalePageWhileFillsRaceWithInvalidations(new LruCommentCache(10));
+  }
+
+  @Test
+  public void memcacheNoStalePageWhileFillsRaceWithInvalidations() throws Exception {
+    assertNoStalePageWhileFillsRaceWithInvalidations(new MemcacheCommentCache());
+  }
+
+  private static void assertPageIsFoundUntilInvalidated(CommentCache cache) {
+    long generation = cache.getGeneration(IMAGE_ID);
+    cache.put(IMAGE_ID, generation, PAGE_KEY, page(1));
+
+    Assert.assertEquals(generation, cache.getGeneration(IMAGE_ID));
+    Assert.assertEquals(1, version(cache.get(IMAGE_ID, generation, PAGE_KEY)));
+
+    cache.invalidate(IMAGE_ID);
+
+    long newGeneration = cache.getGeneration(IMAGE_ID);
+    Assert.assertNotEquals(generation, newGeneration);
+    Assert.assertNull(cache.get(IMAGE_ID, newGeneration, PAGE_KEY));
+  }
+
+  private static void assertFillAfterInvalidationIsNotFound(CommentCache cache) {
+    // A reader misses and reads the comments, then a writer adds one and another reader looks
+    // the image up before the first page is cached
+    long generation = cache.getGeneration(IMAGE_ID);
+    Assert.assertNull(cache.get(IMAGE_ID, generation, PAGE_KEY));
+    cache.invalidate(IMAGE_ID);
+    long newGeneration = cache.getGeneration(IMAGE_ID);
+    cache.put(IMAGE_ID, generation, PAGE_KEY, page(1));
+
+    Assert.assertNull(cache.get(IMAGE_ID, newGeneration, PAGE_KEY));
+    Assert.assertNull(cache.get(IMAGE_ID, cache.getGeneration(IMAGE_ID), PAGE_KEY));
+  }
+
+  /**
+   * Writers change the comments and invalidate the image, readers fill the cache on a miss. A
+   * page read before an invalidation must never be found by a lookup that starts after it.
+   */
+  private void assertNoStalePageWhileFillsRaceWithInvalidations(CommentCache cache)
+      throws Exception {
+    // Writes to the comments, and how many of them were followed by an invalidation
+    AtomicLong written = new AtomicLong();
+    AtomicLong invalidated = new AtomicLong();
+    AtomicBoolean done = new AtomicBoolean();
+    ApiProxy.Environment environment = ApiProxy.getCurrentEnvironment();
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> readers = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        readers.add(executor.submit(() -> {
+          ApiProxy.setEnvironmentForCurrentThread(environment);
+          int hits = 0;
+          while (!done.get()) {
+            long invalidatedBefore = invalidated.get();
+            long generation = cache.getGeneration(IMAGE_ID);
+            CommentPage page = cache.get(IMAGE_ID, generation, PAGE_KEY);
+            if (page == null) {
+              cache.put(IMAGE_ID, generation, PAGE_KEY, page(written.get()));
+            } else {
+              Assert.assertTrue(version(page) >= invalidatedBefore);
+              hits++;
+            }
+          }
+          return hits;
+        }));
+      }
+
+      Future<?> writer = executor.submit(() -> {
+        ApiProxy.setEnvironmentForCurrentThread(environment);
+        for (int i = 0; i < 500; i++) {
+          long version = written.incrementAndGet();
+          cache.invalidate(IMAGE_ID);
+          invalidated.set(version);
+          Thread.yield();
+        }
+        done.set(true);
+      });
+
+      writer.get();
+      int hits = 0;
+      for (Future<Integer> reader : readers) {
+        hits += reader.get();
+      }
+      Assert.assertTrue(hits > 0);
+    } finally {
+      done.set(true);
+      executor.shutdownNow();
+    }
+  }
+
+  /** Return a page whose only comment holds the number of writes it was read after */
+  private static CommentPage page(long version) {
+    return new CommentPage(
+        Arrays.asList(new Comment(version, "user", "comment", IMAGE_ID, 0)), null);
+  }
+
+  private static long version(CommentPage page) {
+    return page.getComments().get(0).getId();
+  }
+}
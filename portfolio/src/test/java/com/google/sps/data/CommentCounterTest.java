@@ -0,0 +1,124 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Transaction;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class CommentCounterTest {
+  private static final String IMAGE_ID = "pic-1";
+  private static final String OTHER_IMAGE_ID = "pic-2";
+
+  private final LocalServiceTestHelper helper =
+      new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+
+  @Before
+  public void setUp() {
+    helper.setUp();
+  }
+
+  @After
+  public void tearDown() {
+    helper.tearDown();
+  }
+
+  @Test
+  public void countIsTheSumOfEveryShard() {
+    // Enough updates to land on several shards
+    for (int i = 0; i < 40; i++) {
+      add(IMAGE_ID, 2);
+    }
+    add(IMAGE_ID, -5);
+
+    Assert.assertTrue(countShards() > 1);
+    Assert.assertEquals(
+        Long.valueOf(75), CommentCounter.getCounts(Arrays.asList(IMAGE_ID)).get(IMAGE_ID));
+  }
+
+  @Test
+  public void imagesAreCountedApartInTheOrderAsked() {
+    add(IMAGE_ID, 3);
+    add(OTHER_IMAGE_ID, 1);
+
+    Map<String, Long> expected = new LinkedHashMap<>();
+    expected.put(OTHER_IMAGE_ID, 1L);
+    expected.put("pic-3", 0L);
+    expected.put(IMAGE_ID, 3L);
+    Map<String, Long> counts =
+        CommentCounter.getCounts(Arrays.asList(OTHER_IMAGE_ID, "pic-3", IMAGE_ID));
+    Assert.assertEquals(expected, counts);
+    Assert.assertEquals(Arrays.asList(expected.keySet().toArray()),
+        Arrays.asList(counts.keySet().toArray()));
+  }
+
+  @Test
+  public void rolledBackUpdateIsNotCounted() {
+    add(IMAGE_ID, 4);
+
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    Transaction transaction = datastore.beginTransaction();
+    CommentCounter.add(transaction, IMAGE_ID, 10);
+    transaction.rollback();
+
+    Assert.assertEquals(
+        Long.valueOf(4), CommentCounter.getCounts(Arrays.asList(IMAGE_ID)).get(IMAGE_ID));
+  }
+
+  @Test
+  public void mostImagesPerGetFitInOneBatchedGet() {
+    add(IMAGE_ID, 1);
+    List<String> imageIds = new ArrayList<>();
+    imageIds.add(IMAGE_ID);
+    while (imageIds.size() < CommentCounter.maxImagesPerGet()) {
+      imageIds.add("pic-" + (imageIds.size() + 1));
+    }
+
+    Map<String, Long> counts = CommentCounter.getCounts(imageIds);
+
+    Assert.assertEquals(imageIds.size(), counts.size());
+    Assert.assertEquals(Long.valueOf(1), counts.get(IMAGE_ID));
+  }
+
+  private static void add(String imageId, long delta) {
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    Transaction transaction = datastore.beginTransaction();
+    CommentCounter.add(transaction, imageId, delta);
+    transaction.commit();
+  }
+
+  private static int countShards() {
+    return DatastoreServiceFactory.getDatastoreService()
+        .prepare(new Query(CommentCounter.KIND).setKeysOnly())
+        .countEntities(FetchOptions.Builder.withDefaults());
+  }
+}
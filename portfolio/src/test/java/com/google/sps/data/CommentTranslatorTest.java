@@ -0,0 +1,351 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Text;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class CommentTranslatorTest {
+  private static final String IMAGE_ID = "pic-1";
+
+  private final LocalServiceTestHelper helper =
+      new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+
+  private ExecutorService executor;
+  private TranslationCache cache;
+
+  @Before
+  public void setUp() {
+    helper.setUp();
+    executor = Executors.newFixedThreadPool(4);
+    cache = new TranslationCache(1000);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+    helper.tearDown();
+  }
+
+  @Test
+  public void cachedTranslationIsUsedFirst() {
+    Comment comment = storeComment("hello", null);
+    cache.put(comment.getId(), "es", "hola");
+
+    List<Comment> translated = translator(true).translate(Arrays.asList(comment), "es");
+
+    Assert.assertEquals("hola", translated.get(0).getText());
+  }
+
+  @Test
+  public void storedTranslationIsUsedAndCached() {
+    Comment comment = storeComment("hello", "hola");
+
+    List<Comment> translated = translator(true).translate(Arrays.asList(comment), "es");
+
+    Assert.assertEquals("hola", translated.get(0).getText());
+    Assert.assertEquals("hola", cache.get(comment.getId(), "es"));
+  }
+
+  @Test
+  public void storedTranslationIsIgnoredWithoutPersistence() {
+    Comment comment = storeComment("hello", "hola");
+
+    List<Comment> translated = translator(false).translate(Arrays.asList(comment), "es");
+
+    Assert.assertEquals("[es] hello", translated.get(0).getText());
+  }
+
+  @Test
+  public void newTranslationsOfManyCommentsAreStored() throws Exception {
+    // More comments than the entity groups of one cross group transaction
+    List<Comment> comments = new ArrayList<>();
+    for (int i = 0; i < 60; i++) {
+      comments.add(storeComment("comment " + i, null));
+    }
+
+    translator(true).translate(comments, "es");
+
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    for (Comment comment : comments) {
+      Entity entity = datastore.get(KeyFactory.createKey("Comment", comment.getId()));
+      Text stored = (Text) entity.getProperty(CommentTranslator.translationProperty("es"));
+      Assert.assertEquals("[es] " + comment.getText(), stored.getValue());
+    }
+  }
+
+  @Test
+  public void deletedCommentIsNotStoredBack() {
+    Comment comment = storeComment("hello", null);
+    DatastoreServiceFactory.getDatastoreService()
+        .delete(KeyFactory.createKey("Comment", comment.getId()));
+
+    List<Comment> translated = translator(true).translate(Arrays.asList(comment), "es");
+
+    Assert.assertEquals("[es] hello", translated.get(0).getText());
+    try {
+      DatastoreServiceFactory.getDatastoreService()
+          .get(KeyFactory.createKey("Comment", comment.getId()));
+      Assert.fail("The deleted comment was written back");
+    } catch (EntityNotFoundException expected) {
+      // Still deleted
+    }
+  }
+
+  @Test
+  public void batchesHoldAtMost128Texts() {
+    FakeTranslateRpc rpc = new FakeTranslateRpc();
+    List<Comment> comments = unstoredComments(300, "text");
+
+    List<Comment> translated = translator(rpc).translate(comments, "es");
+
+    assertTranslatedInOrder(comments, translated);
+    Assert.assertEquals(Arrays.asList(44, 128, 128), sortedCallSizes(rpc));
+  }
+
+  @Test
+  public void batchesHoldAtMost5000Chars() {
+    FakeTranslateRpc rpc = new FakeTranslateRpc();
+    List<Comment> comments = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      comments.add(new Comment(i + 1, "user", String.format("%03d", i) + repeat('a', 997),
+          IMAGE_ID, 0));
+    }
+
+    List<Comment> translated = translator(rpc).translate(comments, "es");
+
+    // Five texts of 1000 chars fill a batch exactly
+    assertTranslatedInOrder(comments, translated);
+    Assert.assertEquals(Arrays.asList(2, 5, 5), sortedCallSizes(rpc));
+  }
+
+  @Test
+  public void textOverTheCharLimitGoesAlone() {
+    FakeTranslateRpc rpc = new FakeTranslateRpc();
+    List<Comment> comments = Arrays.asList(
+        new Comment(1, "user", "short before", IMAGE_ID, 0),
+        new Comment(2, "user", repeat('b', 6000), IMAGE_ID, 0),
+        new Comment(3, "user", "short after", IMAGE_ID, 0));
+
+    List<Comment> translated = translator(rpc).translate(comments, "es");
+
+    assertTranslatedInOrder(comments, translated);
+    Assert.assertEquals(Arrays.asList(1, 1, 1), sortedCallSizes(rpc));
+  }
+
+  @Test
+  public void cachedTextsAreNotSentAgain() {
+    FakeTranslateRpc rpc = new FakeTranslateRpc();
+    CommentTranslator translator = translator(rpc);
+    List<Comment> comments = unstoredComments(10, "text");
+    translator.translate(comments.subList(0, 6), "es");
+    int firstCalls = rpc.getTranslateCalls().size();
+
+    List<Comment> translated = translator.translate(comments, "es");
+
+    assertTranslatedInOrder(comments, translated);
+    List<List<String>> newCalls =
+        rpc.getTranslateCalls().subList(firstCalls, rpc.getTranslateCalls().size());
+    Assert.assertEquals(1, newCalls.size());
+    Assert.assertEquals(Arrays.asList("text 6", "text 7", "text 8", "text 9"), newCalls.get(0));
+
+    // Another language is a different translation
+    translator.translate(comments.subList(0, 1), "fr");
+    Assert.assertEquals(firstCalls + 2, rpc.getTranslateCalls().size());
+  }
+
+  @Test
+  public void concurrentCallersGetTheirOwnTranslations() throws Exception {
+    FakeTranslateRpc rpc = new FakeTranslateRpc();
+    CommentTranslator translator = translator(rpc);
+    String[] languages = {"de", "es", "fr"};
+
+    // Callers share the executor and the cache, and their pages overlap
+    List<Comment> comments = unstoredComments(400, "text");
+    ExecutorService callers = Executors.newFixedThreadPool(6);
+    try {
+      List<Future<?>> results = new ArrayList<>();
+      for (int caller = 0; caller < 6; caller++) {
+        int first = caller * 40;
+        String language = languages[caller % languages.length];
+        results.add(callers.submit(() -> {
+          for (int round = 0; round < 5; round++) {
+            List<Comment> page = comments.subList(first + round * 4, first + round * 4 + 150);
+            List<Comment> translated = translator.translate(page, language);
+
+            Assert.assertEquals(page.size(), translated.size());
+            for (int i = 0; i < page.size(); i++) {
+              Assert.assertEquals(page.get(i).getId(), translated.get(i).getId());
+              Assert.assertEquals(
+                  "[" + language + "] " + page.get(i).getText(), translated.get(i).getText());
+            }
+          }
+        }));
+      }
+      for (Future<?> result : results) {
+        result.get();
+      }
+    } finally {
+      callers.shutdownNow();
+    }
+  }
+
+  @Test
+  public void pretranslationSendsEachLanguageOnce() throws Exception {
+    List<Long> commentIds = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      commentIds.add(storeComment("comment " + i, null).getId());
+    }
+    FakeTranslateRpc rpc = new FakeTranslateRpc();
+
+    persistingTranslator(rpc).pretranslate(commentIds, Arrays.asList("es", "fr"));
+
+    Assert.assertEquals(Arrays.asList(12, 12), sortedCallSizes(rpc));
+    for (int i = 0; i < commentIds.size(); i++) {
+      Assert.assertEquals("[es] comment " + i, storedTranslation(commentIds.get(i), "es"));
+      Assert.assertEquals("[fr] comment " + i, storedTranslation(commentIds.get(i), "fr"));
+    }
+  }
+
+  @Test
+  public void pretranslationSkipsStoredLanguages() throws Exception {
+    List<Long> commentIds = Arrays.asList(
+        storeComment("hello", "hola").getId(), storeComment("bye", null).getId());
+    FakeTranslateRpc rpc = new FakeTranslateRpc();
+
+    persistingTranslator(rpc).pretranslate(commentIds, Arrays.asList("es", "fr"));
+
+    // Only the comment without Spanish is sent for Spanish
+    Assert.assertEquals(Arrays.asList(1, 2), sortedCallSizes(rpc));
+    Assert.assertEquals("hola", storedTranslation(commentIds.get(0), "es"));
+
+    // Trying again finds every translation stored
+    FakeTranslateRpc retryRpc = new FakeTranslateRpc();
+    persistingTranslator(retryRpc).pretranslate(commentIds, Arrays.asList("es", "fr"));
+
+    Assert.assertEquals(Collections.emptyList(), retryRpc.getTranslateCalls());
+  }
+
+  @Test
+  public void pretranslationSkipsDeletedComments() throws Exception {
+    long deletedId = storeComment("hello", null).getId();
+    long commentId = storeComment("bye", null).getId();
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    datastore.delete(KeyFactory.createKey("Comment", deletedId));
+    FakeTranslateRpc rpc = new FakeTranslateRpc();
+
+    persistingTranslator(rpc)
+        .pretranslate(Arrays.asList(deletedId, commentId), Arrays.asList("es"));
+
+    Assert.assertEquals(Arrays.asList(Arrays.asList("bye")), rpc.getTranslateCalls());
+    Assert.assertEquals("[es] bye", storedTranslation(commentId, "es"));
+    try {
+      datastore.get(KeyFactory.createKey("Comment", deletedId));
+      Assert.fail("The deleted comment was written back");
+    } catch (EntityNotFoundException expected) {
+      // Still deleted
+    }
+  }
+
+  private CommentTranslator translator(FakeTranslateRpc rpc) {
+    return new CommentTranslator(FakeTranslateRpc.createTranslate(rpc), executor, cache, false);
+  }
+
+  private CommentTranslator persistingTranslator(FakeTranslateRpc rpc) {
+    return new CommentTranslator(FakeTranslateRpc.createTranslate(rpc), executor, cache, true);
+  }
+
+  private CommentTranslator translator(boolean persistTranslations) {
+    return new CommentTranslator(
+        FakeTranslateRpc.createTranslate(), executor, cache, persistTranslations);
+  }
+
+  /** Return comments that are not in Datastore, with numbered texts */
+  private static List<Comment> unstoredComments(int count, String text) {
+    List<Comment> comments = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      comments.add(new Comment(i + 1, "user", text + " " + i, IMAGE_ID, 0));
+    }
+    return comments;
+  }
+
+  private static void assertTranslatedInOrder(List<Comment> comments, List<Comment> translated) {
+    Assert.assertEquals(comments.size(), translated.size());
+    for (int i = 0; i < comments.size(); i++) {
+      Assert.assertEquals(comments.get(i).getId(), translated.get(i).getId());
+      Assert.assertEquals("[es] " + comments.get(i).getText(), translated.get(i).getText());
+    }
+  }
+
+  /** Return how many texts each translate call had, smallest first */
+  private static List<Integer> sortedCallSizes(FakeTranslateRpc rpc) {
+    List<Integer> sizes = new ArrayList<>();
+    for (List<String> call : rpc.getTranslateCalls()) {
+      sizes.add(call.size());
+    }
+    Collections.sort(sizes);
+    return sizes;
+  }
+
+  private static String repeat(char c, int count) {
+    char[] chars = new char[count];
+    Arrays.fill(chars, c);
+    return new String(chars);
+  }
+
+  private static String storedTranslation(long commentId, String lang)
+      throws EntityNotFoundException {
+    Entity entity = DatastoreServiceFactory.getDatastoreService()
+        .get(KeyFactory.createKey("Comment", commentId));
+    return ((Text) entity.getProperty(CommentTranslator.translationProperty(lang))).getValue();
+  }
+
+  /** Store a comment, with its translation into Spanish if there is one, and return it */
+  private static Comment storeComment(String text, String spanishText) {
+    Entity commentEntity = new Entity("Comment");
+    commentEntity.setProperty("username", "user");
+    commentEntity.setProperty("comment", text);
+    commentEntity.setProperty("imageId", IMAGE_ID);
+    commentEntity.setProperty("date", new Date(0));
+    if (spanishText != null) {
+      commentEntity.setUnindexedProperty(
+          CommentTranslator.translationProperty("es"), new Text(spanishText));
+    }
+    DatastoreServiceFactory.getDatastoreService().put(commentEntity);
+    return new Comment(commentEntity.getKey().getId(), "user", text, IMAGE_ID, 0);
+  }
+}
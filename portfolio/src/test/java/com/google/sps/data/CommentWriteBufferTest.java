@@ -0,0 +1,183 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.apphosting.api.ApiProxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class CommentWriteBufferTest {
+  private static final int BATCH_SIZE = 5;
+  private static final int WAITING_COMMENTS = 12;
+
+  private final LocalServiceTestHelper helper =
+      new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+
+  // Every batch the buffer stored, the first one blocks until it is released
+  private final List<List<Entity>> batches = new CopyOnWriteArrayList<>();
+  private final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+  private final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+
+  private ExecutorService executor;
+  private CommentWriteBuffer buffer;
+
+  @Before
+  public void setUp() {
+    helper.setUp();
+    executor = Executors.newFixedThreadPool(WAITING_COMMENTS + 2);
+    buffer = new CommentWriteBuffer(BATCH_SIZE, batch -> {
+      if (batches.isEmpty()) {
+        firstBatchStarted.countDown();
+        try {
+          releaseFirstBatch.await();
+        } catch (InterruptedException exc) {
+          throw new IllegalStateException(exc);
+        }
+      }
+      batches.add(batch);
+    });
+  }
+
+  @After
+  public void tearDown() {
+    releaseFirstBatch.countDown();
+    executor.shutdownNow();
+    helper.tearDown();
+  }
+
+  @Test
+  public void aloneCommentIsWrittenBeforeAddReturns() {
+    releaseFirstBatch.countDown();
+
+    Key key = buffer.add(comment(0));
+
+    Assert.assertEquals(1, batches.size());
+    Assert.assertEquals(Arrays.asList(key), keys(batches.get(0)));
+    Assert.assertEquals(0, buffer.getPendingCount());
+  }
+
+  @Test
+  public void commentsAddedDuringAWriteGoTogetherInOrder() throws Exception {
+    List<Future<Key>> added = addWhileTheFirstBatchIsWritten();
+
+    releaseFirstBatch.countDown();
+    List<Key> returnedKeys = new ArrayList<>();
+    for (Future<Key> future : added) {
+      returnedKeys.add(future.get());
+    }
+
+    // The first comment alone, then the waiting ones in full batches
+    List<Integer> sizes = new ArrayList<>();
+    List<Key> writtenKeys = new ArrayList<>();
+    for (List<Entity> batch : batches) {
+      sizes.add(batch.size());
+      writtenKeys.addAll(keys(batch));
+    }
+    Assert.assertEquals(Arrays.asList(1, 5, 5, 2), sizes);
+    assertWrittenInOrder(writtenKeys);
+    Assert.assertEquals(new HashSet<>(returnedKeys), new HashSet<>(writtenKeys));
+  }
+
+  @Test
+  public void flushWritesEveryWaitingComment() throws Exception {
+    List<Future<Key>> added = addWhileTheFirstBatchIsWritten();
+    ApiProxy.Environment environment = ApiProxy.getCurrentEnvironment();
+    Future<?> flush = executor.submit(() -> {
+      ApiProxy.setEnvironmentForCurrentThread(environment);
+      buffer.flush();
+    });
+
+    releaseFirstBatch.countDown();
+    flush.get();
+
+    // Nothing is left once the flush returns, even before the adding requests are done
+    Assert.assertEquals(0, buffer.getPendingCount());
+    int written = 0;
+    for (List<Entity> batch : batches) {
+      written += batch.size();
+    }
+    Assert.assertEquals(WAITING_COMMENTS + 1, written);
+    for (Future<Key> future : added) {
+      future.get();
+    }
+  }
+
+  /**
+   * Add a comment whose write blocks, then more comments that wait for it. Return the futures of
+   * the adds, the first one first.
+   */
+  private List<Future<Key>> addWhileTheFirstBatchIsWritten() throws Exception {
+    ApiProxy.Environment environment = ApiProxy.getCurrentEnvironment();
+    List<Future<Key>> added = new ArrayList<>();
+    for (int i = 0; i <= WAITING_COMMENTS; i++) {
+      Entity comment = comment(i);
+      added.add(executor.submit(() -> {
+        ApiProxy.setEnvironmentForCurrentThread(environment);
+        return buffer.add(comment);
+      }));
+      if (i == 0) {
+        firstBatchStarted.await();
+      }
+    }
+
+    // The first comment is being written, the others wait in the buffer
+    while (buffer.getPendingCount() < WAITING_COMMENTS + 1) {
+      Thread.sleep(1);
+    }
+    Assert.assertEquals(0, batches.size());
+    return added;
+  }
+
+  /** Keys are allocated in increasing order as comments are added */
+  private static void assertWrittenInOrder(List<Key> keys) {
+    for (int i = 1; i < keys.size(); i++) {
+      Assert.assertTrue(keys.toString(), keys.get(i - 1).getId() < keys.get(i).getId());
+    }
+  }
+
+  private static List<Key> keys(List<Entity> batch) {
+    List<Key> keys = new ArrayList<>();
+    for (Entity entity : batch) {
+      keys.add(entity.getKey());
+    }
+    return keys;
+  }
+
+  private static Entity comment(int number) {
+    Entity comment = new Entity("Comment");
+    comment.setProperty("comment", "comment " + number);
+    comment.setProperty("imageId", "pic-1");
+    return comment;
+  }
+}
@@ -0,0 +1,231 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class CsvParserTest {
+  private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  @Test
+  public void quotedFieldsKeepCommasAndQuotes() throws Exception {
+    CsvParser csv = parser("\"Victoria, Tamaulipas\",12\n\"say \"\"hi\"\"\",3\n");
+
+    Assert.assertTrue(csv.nextRow());
+    Assert.assertEquals(2, csv.getFieldCount());
+    Assert.assertEquals("Victoria, Tamaulipas", csv.getString(0));
+    Assert.assertEquals(12, csv.getInt(1));
+
+    Assert.assertTrue(csv.nextRow());
+    Assert.assertEquals("say \"hi\"", csv.getString(0));
+    Assert.assertEquals(3, csv.getInt(1));
+
+    Assert.assertFalse(csv.nextRow());
+  }
+
+  @Test
+  public void crlfLineBreaksAreNotPartOfTheFields() throws Exception {
+    CsvParser csv = parser("a,1\r\nb,2\r\n");
+
+    Assert.assertTrue(csv.nextRow());
+    Assert.assertEquals(1, csv.getLine());
+    Assert.assertEquals("1", csv.getString(1));
+    Assert.assertEquals(1, csv.getInt(1));
+
+    Assert.assertTrue(csv.nextRow());
+    Assert.assertEquals(2, csv.getLine());
+    Assert.assertEquals(2.0, csv.getDouble(1), 0.0);
+
+    Assert.assertFalse(csv.nextRow());
+  }
+
+  @Test
+  public void lastRowWithoutLineBreak() throws Exception {
+    CsvParser csv = parser("a,1\nb,2");
+
+    Assert.assertTrue(csv.nextRow());
+    Assert.assertTrue(csv.nextRow());
+    Assert.assertEquals("b", csv.getString(0));
+    Assert.assertEquals(2, csv.getInt(1));
+    Assert.assertFalse(csv.nextRow());
+  }
+
+  @Test
+  public void emptyLinesAreSkippedButCounted() throws Exception {
+    CsvParser csv = parser("a,1\n\n\r\nb,2\n");
+
+    Assert.assertTrue(csv.nextRow());
+    Assert.assertEquals(1, csv.getLine());
+    Assert.assertTrue(csv.nextRow());
+    Assert.assertEquals(4, csv.getLine());
+    Assert.assertFalse(csv.nextRow());
+  }
+
+  @Test
+  public void numbersAtTheLimits() throws Exception {
+    CsvParser csv = parser("-2147483648,2147483647,+7,-0.5,1.5e3,0.1\n");
+
+    Assert.assertTrue(csv.nextRow());
+    Assert.assertEquals(Integer.MIN_VALUE, csv.getInt(0));
+    Assert.assertEquals(Integer.MAX_VALUE, csv.getInt(1));
+    Assert.assertEquals(7, csv.getInt(2));
+    Assert.assertEquals(-0.5, csv.getDouble(3), 0.0);
+    Assert.assertEquals(1500.0, csv.getDouble(4), 0.0);
+    Assert.assertEquals(0.1, csv.getDouble(5), 0.0);
+  }
+
+  @Test
+  public void badIntReportsLineAndColumn() throws Exception {
+    CsvParser csv = parser("ok,1\nx,12a\n");
+    csv.nextRow();
+    csv.nextRow();
+
+    BadDataException error = getIntError(csv, 1);
+    Assert.assertEquals(2, error.getLine());
+    Assert.assertEquals(5, error.getColumn());
+  }
+
+  @Test
+  public void emptyIntReportsLineAndColumn() throws Exception {
+    CsvParser csv = parser("ok,1\nx,\n");
+    csv.nextRow();
+    csv.nextRow();
+
+    BadDataException error = getIntError(csv, 1);
+    Assert.assertEquals(2, error.getLine());
+    Assert.assertEquals(3, error.getColumn());
+  }
+
+  @Test
+  public void tooBigIntReportsWhereTheNumberStarts() throws Exception {
+    CsvParser csv = parser("x,2147483648\n");
+    csv.nextRow();
+
+    BadDataException error = getIntError(csv, 1);
+    Assert.assertEquals(1, error.getLine());
+    Assert.assertEquals(3, error.getColumn());
+  }
+
+  @Test
+  public void badDoubleReportsLineAndColumn() throws Exception {
+    CsvParser csv = parser("a,1\nb,2\nx,1.2.3\n");
+    csv.nextRow();
+    csv.nextRow();
+    csv.nextRow();
+
+    try {
+      csv.getDouble(1);
+      Assert.fail("Expected a BadDataException");
+    } catch (BadDataException error) {
+      Assert.assertEquals(3, error.getLine());
+      Assert.assertEquals(6, error.getColumn());
+    }
+  }
+
+  @Test
+  public void wrongFieldCountReportsTheLine() throws Exception {
+    CsvParser csv = parser("a,1\nb\n");
+    csv.nextRow();
+    csv.requireFieldCount(2);
+    csv.nextRow();
+
+    try {
+      csv.requireFieldCount(2);
+      Assert.fail("Expected a BadDataException");
+    } catch (BadDataException error) {
+      Assert.assertEquals(2, error.getLine());
+    }
+  }
+
+  @Test
+  public void unclosedQuoteIsAnError() throws Exception {
+    CsvParser csv = parser("a,1\nx,\"open\n");
+    csv.nextRow();
+
+    try {
+      csv.nextRow();
+      Assert.fail("Expected a BadDataException");
+    } catch (BadDataException error) {
+      Assert.assertEquals(2, error.getLine());
+    }
+  }
+
+  @Test
+  public void rowsSplitAcrossBufferRefillsAreTheSame() throws Exception {
+    String input = "a,1\r\n\n\"q,\"\"x\"\"\",-2147483648\nlong attribute name,12.25\nlast,2";
+    List<String> expected = readAll(parser(input));
+    Assert.assertEquals(4, expected.size());
+
+    // Every buffer size puts the refills at different places, down to one byte per read
+    for (int bufferSize = 1; bufferSize <= input.length() + 1; bufferSize++) {
+      Assert.assertEquals("buffer of " + bufferSize, expected, readAll(parser(input, bufferSize)));
+    }
+  }
+
+  @Test
+  public void errorsKeepTheirColumnAcrossBufferRefills() throws Exception {
+    String input = "ok,1\nsome attribute,12a\n";
+    for (int bufferSize = 1; bufferSize <= input.length() + 1; bufferSize++) {
+      CsvParser csv = parser(input, bufferSize);
+      csv.nextRow();
+      csv.nextRow();
+
+      BadDataException error = getIntError(csv, 1);
+      Assert.assertEquals("buffer of " + bufferSize, 2, error.getLine());
+      Assert.assertEquals("buffer of " + bufferSize, 18, error.getColumn());
+    }
+  }
+
+  private static CsvParser parser(String input) {
+    return parser(input, DEFAULT_BUFFER_SIZE);
+  }
+
+  private static CsvParser parser(String input, int bufferSize) {
+    byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+    return new CsvParser(
+        Channels.newChannel(new ByteArrayInputStream(bytes)), "test.csv", bufferSize);
+  }
+
+  /** Return every row as its line and fields, with the numbers read back as numbers */
+  private static List<String> readAll(CsvParser csv) throws IOException, BadDataException {
+    List<String> rows = new ArrayList<>();
+    while (csv.nextRow()) {
+      rows.add(csv.getLine() + ":" + Arrays.asList(csv.getString(0), csv.getDouble(1)));
+    }
+    return rows;
+  }
+
+  private static BadDataException getIntError(CsvParser csv, int field) {
+    try {
+      csv.getInt(field);
+    } catch (BadDataException error) {
+      return error;
+    }
+    Assert.fail("Expected a BadDataException");
+    return null;
+  }
+}
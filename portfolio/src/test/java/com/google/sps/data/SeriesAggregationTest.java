@@ -0,0 +1,165 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class SeriesAggregationTest {
+
+  @Test
+  public void topIsTheLargestFirstWithTiesInOrder() {
+    double[] values = {3, 9, 1, 9, 5};
+
+    Assert.assertArrayEquals(new int[] {1, 3, 4}, SeriesAggregation.top(values, 3));
+    Assert.assertArrayEquals(new int[] {1, 3, 4, 0, 2}, SeriesAggregation.top(values, 10));
+    Assert.assertArrayEquals(new int[0], SeriesAggregation.top(values, 0));
+    Assert.assertArrayEquals(new int[0], SeriesAggregation.top(new double[0], 3));
+  }
+
+  @Test
+  public void topMatchesSortingOnRandomValues() {
+    Random random = new Random(7);
+    for (int round = 0; round < 2000; round++) {
+      // Few different values, so there are many ties
+      double[] values = new double[random.nextInt(40)];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = random.nextInt(10) - 3;
+      }
+      int n = random.nextInt(values.length + 3);
+
+      Assert.assertArrayEquals(Arrays.toString(values) + " top " + n,
+          sortedTop(values, n), SeriesAggregation.top(values, n));
+    }
+  }
+
+  @Test
+  public void weeksStartOnMondayAndAreCutToTheRange() {
+    // Wednesday to Wednesday
+    int from = day("2020-06-03");
+    int to = day("2020-06-17");
+
+    int[] bounds = SeriesAggregation.bucketBounds(from, to, ChronoUnit.WEEKS);
+
+    Assert.assertArrayEquals(
+        new int[] {from, day("2020-06-08"), day("2020-06-15"), to + 1}, bounds);
+  }
+
+  @Test
+  public void monthsStartOnTheFirstAndAreCutToTheRange() {
+    int from = day("2020-01-15");
+    int to = day("2020-03-01");
+
+    int[] bounds = SeriesAggregation.bucketBounds(from, to, ChronoUnit.MONTHS);
+
+    Assert.assertArrayEquals(
+        new int[] {from, day("2020-02-01"), day("2020-03-01"), to + 1}, bounds);
+  }
+
+  @Test
+  public void rangeInsideOneBucketIsASingleBucket() {
+    int from = day("2020-06-09");
+    int to = day("2020-06-10");
+
+    Assert.assertArrayEquals(new int[] {from, to + 1},
+        SeriesAggregation.bucketBounds(from, to, ChronoUnit.WEEKS));
+    Assert.assertArrayEquals(new int[] {from, from + 1, to + 1},
+        SeriesAggregation.bucketBounds(from, to, ChronoUnit.DAYS));
+  }
+
+  @Test
+  public void bucketsAddUpTheirDays() {
+    int from = day("2020-06-05");
+    int to = day("2020-06-16");
+    long[] daily = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12};
+
+    int[] bounds = SeriesAggregation.bucketBounds(from, to, ChronoUnit.WEEKS);
+
+    // Friday to Sunday, a whole week, then Monday and Tuesday
+    Assert.assertArrayEquals(new long[] {6, 49, 23}, SeriesAggregation.sumBuckets(daily, bounds));
+  }
+
+  @Test
+  public void downsampleKeepsTheEndsAndTheRequestedPoints() {
+    Random random = new Random(11);
+    for (int round = 0; round < 500; round++) {
+      int length = 3 + random.nextInt(300);
+      int[] x = new int[length];
+      double[] y = new double[length];
+      for (int i = 0; i < length; i++) {
+        x[i] = i * 7;
+        y[i] = random.nextGaussian() * 100;
+      }
+      int points = 3 + random.nextInt(length);
+
+      int[] kept = SeriesAggregation.downsample(x, y, points);
+
+      Assert.assertEquals(Math.min(points, length), kept.length);
+      Assert.assertEquals(0, kept[0]);
+      Assert.assertEquals(length - 1, kept[kept.length - 1]);
+      for (int i = 1; i < kept.length; i++) {
+        Assert.assertTrue(Arrays.toString(kept), kept[i - 1] < kept[i]);
+      }
+    }
+  }
+
+  @Test
+  public void downsampleKeepsASpike() {
+    int[] x = new int[100];
+    double[] y = new double[100];
+    for (int i = 0; i < x.length; i++) {
+      x[i] = i;
+    }
+    y[50] = 1000;
+
+    int[] kept = SeriesAggregation.downsample(x, y, 10);
+
+    Assert.assertTrue(Arrays.toString(kept), Arrays.stream(kept).anyMatch(i -> i == 50));
+  }
+
+  @Test
+  public void downsampleKeepsShortSeries() {
+    int[] x = {1, 2, 3, 4};
+    double[] y = {4, 3, 2, 1};
+
+    Assert.assertArrayEquals(new int[] {0, 1, 2, 3}, SeriesAggregation.downsample(x, y, 4));
+    Assert.assertArrayEquals(new int[] {0, 1, 2, 3}, SeriesAggregation.downsample(x, y, 2));
+  }
+
+  private static int day(String date) {
+    return (int) LocalDate.parse(date).toEpochDay();
+  }
+
+  /** The top of {@code values} by sorting every position, a stable sort keeps ties in order */
+  private static int[] sortedTop(double[] values, int n) {
+    List<Integer> positions = new ArrayList<>();
+    for (int i = 0; i < values.length; i++) {
+      positions.add(i);
+    }
+    positions.sort((a, b) -> Double.compare(values[b], values[a]));
+    return positions.subList(0, Math.min(n, values.length)).stream()
+        .mapToInt(Integer::intValue).toArray();
+  }
+}
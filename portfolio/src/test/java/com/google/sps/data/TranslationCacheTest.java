@@ -0,0 +1,89 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class TranslationCacheTest {
+
+  @Test
+  public void translationsAreKeptPerLanguage() {
+    TranslationCache cache = new TranslationCache(10);
+    cache.put(1, "es", "hola");
+    cache.put(1, "fr", "salut");
+
+    Assert.assertEquals("hola", cache.get(1, "es"));
+    Assert.assertEquals("salut", cache.get(1, "fr"));
+    Assert.assertNull(cache.get(1, "de"));
+    Assert.assertNull(cache.get(2, "es"));
+  }
+
+  @Test
+  public void leastRecentlyUsedTranslationIsEvicted() {
+    TranslationCache cache = new TranslationCache(2);
+    cache.put(1, "es", "uno");
+    cache.put(2, "es", "dos");
+
+    // Reading the first one makes the second one the least recently used
+    cache.get(1, "es");
+    cache.put(3, "es", "tres");
+
+    Assert.assertEquals("uno", cache.get(1, "es"));
+    Assert.assertNull(cache.get(2, "es"));
+    Assert.assertEquals("tres", cache.get(3, "es"));
+  }
+
+  @Test
+  public void concurrentUseKeepsTheLimit() throws Exception {
+    TranslationCache cache = new TranslationCache(100);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> workers = new ArrayList<>();
+      for (int worker = 0; worker < 4; worker++) {
+        int first = worker * 1000;
+        workers.add(executor.submit(() -> {
+          for (int id = first; id < first + 1000; id++) {
+            cache.put(id, "es", "text " + id);
+            String cached = cache.get(id - 10, "es");
+            Assert.assertTrue(cached == null || cached.equals("text " + (id - 10)));
+          }
+        }));
+      }
+      for (Future<?> worker : workers) {
+        worker.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    int cached = 0;
+    for (int id = 0; id < 4000; id++) {
+      if (cache.get(id, "es") != null) {
+        cached++;
+      }
+    }
+    Assert.assertTrue(cached > 0 && cached <= 100);
+  }
+}
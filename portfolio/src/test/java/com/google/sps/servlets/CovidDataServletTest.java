@@ -0,0 +1,116 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class CovidDataServletTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private CovidDataServlet servlet;
+
+  @Before
+  public void setUp() throws Exception {
+    Files.write(folder.getRoot().toPath().resolve("cases.csv"),
+        "Reynosa,7\nMadero,3\n".getBytes(StandardCharsets.UTF_8));
+    System.setProperty("covidData.directory", folder.getRoot().toString());
+    servlet = new CovidDataServlet();
+    ServletFakes.init(servlet, new HashMap<>());
+  }
+
+  @After
+  public void tearDown() {
+    servlet.destroy();
+    System.clearProperty("covidData.directory");
+  }
+
+  @Test
+  public void gzippedJsonHasItsOwnEtag() throws Exception {
+    ServletFakes.Response plain = get(null, null);
+    ServletFakes.Response gzipped = get("gzip, deflate", null);
+
+    String etag = plain.getHeader("ETag");
+    Assert.assertEquals(etag.substring(0, etag.length() - 1) + "-gzip\"",
+        gzipped.getHeader("ETag"));
+    Assert.assertEquals("gzip", gzipped.getHeader("Content-Encoding"));
+    Assert.assertNull(plain.getHeader("Content-Encoding"));
+    Assert.assertEquals(plain.getBodyText(), gunzip(gzipped.getBody()));
+  }
+
+  @Test
+  public void eitherEtagIsNotModified() throws Exception {
+    String etag = get(null, null).getHeader("ETag");
+    String gzipEtag = get("gzip", null).getHeader("ETag");
+
+    // A client that changed its encodings still has the same JSON
+    Assert.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, get(null, etag).getStatus());
+    Assert.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, get("gzip", gzipEtag).getStatus());
+    Assert.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, get(null, gzipEtag).getStatus());
+    Assert.assertEquals(
+        HttpServletResponse.SC_NOT_MODIFIED, get("gzip", "W/" + etag).getStatus());
+
+    Assert.assertEquals(HttpServletResponse.SC_OK, get("gzip", "\"other\"").getStatus());
+  }
+
+  private ServletFakes.Response get(String acceptEncoding, String ifNoneMatch) throws Exception {
+    Map<String, List<String>> parameters =
+        Collections.singletonMap("dataset", Arrays.asList("cases"));
+    Map<String, String> headers = new HashMap<>();
+    if (acceptEncoding != null) {
+      headers.put("Accept-Encoding", acceptEncoding);
+    }
+    if (ifNoneMatch != null) {
+      headers.put("If-None-Match", ifNoneMatch);
+    }
+
+    ServletFakes.Response response = new ServletFakes.Response();
+    servlet.doGet(ServletFakes.request(parameters, headers), response.get());
+    return response;
+  }
+
+  private static String gunzip(byte[] body) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+      byte[] buffer = new byte[1024];
+      for (int read; (read = in.read(buffer)) > 0; ) {
+        out.write(buffer, 0, read);
+      }
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,177 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Query.FilterOperator;
+import com.google.appengine.api.datastore.Transaction;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.sps.data.Comment;
+import com.google.sps.data.CommentCache;
+import com.google.sps.data.CommentCounter;
+import com.google.sps.data.CommentPage;
+import com.google.sps.data.LruCommentCache;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class DeleteCommentsServletTest {
+  private static final String IMAGE_ID = "pic-1";
+  private static final String OTHER_IMAGE_ID = "pic-2";
+
+  private final LocalServiceTestHelper helper =
+      new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+
+  private DeleteCommentsServlet servlet;
+  private CommentCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    helper.setUp();
+    cache = new LruCommentCache(10);
+    servlet = new DeleteCommentsServlet();
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put(CommentCache.class.getName(), cache);
+    ServletFakes.init(servlet, attributes);
+  }
+
+  @After
+  public void tearDown() {
+    helper.tearDown();
+  }
+
+  @Test
+  public void deletesEveryBatchOfTheImageOnly() throws Exception {
+    // Three batches, the last one partly filled
+    addComments(IMAGE_ID, 1203);
+    addComments(OTHER_IMAGE_ID, 3);
+
+    ServletFakes.Response response = post(IMAGE_ID);
+
+    Assert.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    Assert.assertEquals("{\"deleted\":1203}", response.getBodyText().trim());
+    Assert.assertEquals(0, countComments(IMAGE_ID));
+    Assert.assertEquals(3, countComments(OTHER_IMAGE_ID));
+  }
+
+  @Test
+  public void countOfTheImageLosesTheDeletedComments() throws Exception {
+    addComments(IMAGE_ID, 50);
+    addComments(OTHER_IMAGE_ID, 3);
+
+    post(IMAGE_ID);
+
+    Map<String, Long> expected = new HashMap<>();
+    expected.put(IMAGE_ID, 0L);
+    expected.put(OTHER_IMAGE_ID, 3L);
+    Assert.assertEquals(
+        expected, CommentCounter.getCounts(Arrays.asList(IMAGE_ID, OTHER_IMAGE_ID)));
+  }
+
+  @Test
+  public void commentsTheQueryDoesNotSeeYetStayCounted() throws Exception {
+    // Queries outside of an entity group see none of the new comments
+    helper.tearDown();
+    LocalServiceTestHelper eventualHelper = new LocalServiceTestHelper(
+        new LocalDatastoreServiceTestConfig()
+            .setDefaultHighRepJobPolicyUnappliedJobPercentage(100));
+    eventualHelper.setUp();
+    try {
+      addComments(IMAGE_ID, 5);
+
+      Assert.assertEquals("{\"deleted\":0}", post(IMAGE_ID).getBodyText().trim());
+      Assert.assertEquals(
+          Long.valueOf(5), CommentCounter.getCounts(Arrays.asList(IMAGE_ID)).get(IMAGE_ID));
+    } finally {
+      eventualHelper.tearDown();
+      helper.setUp();
+    }
+  }
+
+  @Test
+  public void cachedPagesOfTheImageAreInvalidated() throws Exception {
+    addComments(IMAGE_ID, 2);
+    long generation = cache.getGeneration(IMAGE_ID);
+    cache.put(IMAGE_ID, generation, "5:false:", new CommentPage(
+        Arrays.asList(new Comment(1, "user", "comment", IMAGE_ID, 0)), null));
+
+    post(IMAGE_ID);
+
+    Assert.assertNull(cache.get(IMAGE_ID, cache.getGeneration(IMAGE_ID), "5:false:"));
+  }
+
+  @Test
+  public void imageWithoutCommentsDeletesNothing() throws Exception {
+    Assert.assertEquals("{\"deleted\":0}", post(IMAGE_ID).getBodyText().trim());
+  }
+
+  @Test
+  public void missingImageIsABadRequest() throws Exception {
+    Assert.assertEquals(HttpServletResponse.SC_BAD_REQUEST, post("").getStatus());
+  }
+
+  /** Store comments and count them, like adding them does */
+  private static void addComments(String imageId, int count) {
+    List<Entity> comments = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Entity commentEntity = new Entity("Comment");
+      commentEntity.setProperty("username", "user");
+      commentEntity.setProperty("comment", "comment " + i);
+      commentEntity.setProperty("imageId", imageId);
+      commentEntity.setProperty("date", new Date(i));
+      comments.add(commentEntity);
+    }
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    datastore.put(comments);
+
+    Transaction transaction = datastore.beginTransaction();
+    CommentCounter.add(transaction, imageId, count);
+    transaction.commit();
+  }
+
+  private static int countComments(String imageId) {
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    Query query = new Query("Comment").setKeysOnly();
+    query.addFilter("imageId", FilterOperator.EQUAL, imageId);
+    return datastore.prepare(query).countEntities(FetchOptions.Builder.withDefaults());
+  }
+
+  private ServletFakes.Response post(String imageId) throws Exception {
+    Map<String, List<String>> parameters = new HashMap<>();
+    parameters.put("imageId", Arrays.asList(imageId));
+
+    ServletFakes.Response response = new ServletFakes.Response();
+    servlet.doPost(ServletFakes.request(parameters, Collections.emptyMap()), response.get());
+    return response;
+  }
+}
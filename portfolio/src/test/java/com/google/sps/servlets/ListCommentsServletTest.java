@@ -0,0 +1,144 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.sps.data.CommentCache;
+import com.google.sps.data.LruCommentCache;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class ListCommentsServletTest {
+  private static final String IMAGE_ID = "pic-1";
+
+  private final LocalServiceTestHelper helper =
+      new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+
+  private ListCommentsServlet servlet;
+
+  @Before
+  public void setUp() throws Exception {
+    helper.setUp();
+    servlet = new ListCommentsServlet();
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put(CommentCache.class.getName(), new LruCommentCache(10));
+    ServletFakes.init(servlet, attributes);
+  }
+
+  @After
+  public void tearDown() {
+    helper.tearDown();
+  }
+
+  @Test
+  public void cursorsWalkEveryCommentOnce() throws Exception {
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      addComment(IMAGE_ID, "comment " + i, i);
+      expected.add("comment " + i);
+    }
+    addComment("pic-2", "other image", 0);
+
+    List<String> actual = new ArrayList<>();
+    int pages = 0;
+    String cursor = "";
+    do {
+      JsonObject page = getPage(cursor, "2");
+      for (JsonElement comment : page.getAsJsonArray("comments")) {
+        actual.add(comment.getAsJsonObject().get("text").getAsString());
+      }
+      JsonElement nextCursor = page.get("nextCursor");
+      cursor = nextCursor == null || nextCursor.isJsonNull() ? null : nextCursor.getAsString();
+      pages++;
+    } while (cursor != null);
+
+    Assert.assertEquals(expected, actual);
+    Assert.assertEquals(3, pages);
+  }
+
+  @Test
+  public void cursorOfAFullLastPageLeadsToAnEmptyPage() throws Exception {
+    addComment(IMAGE_ID, "comment 0", 0);
+    addComment(IMAGE_ID, "comment 1", 1);
+
+    JsonObject first = getPage("", "2");
+    JsonObject last = getPage(first.get("nextCursor").getAsString(), "2");
+
+    Assert.assertEquals(2, first.getAsJsonArray("comments").size());
+    Assert.assertEquals(0, last.getAsJsonArray("comments").size());
+    Assert.assertFalse(last.has("nextCursor") && !last.get("nextCursor").isJsonNull());
+  }
+
+  @Test
+  public void badCursorIsABadRequest() throws Exception {
+    addComment(IMAGE_ID, "comment 0", 0);
+
+    Assert.assertEquals(HttpServletResponse.SC_BAD_REQUEST,
+        get(IMAGE_ID, "not a cursor", "2").getStatus());
+  }
+
+  @Test
+  public void quantityBelowOneIsABadRequest() throws Exception {
+    Assert.assertEquals(HttpServletResponse.SC_BAD_REQUEST, get(IMAGE_ID, "", "0").getStatus());
+    Assert.assertEquals(HttpServletResponse.SC_BAD_REQUEST, get(IMAGE_ID, "", "x").getStatus());
+  }
+
+  private static void addComment(String imageId, String text, long minute) {
+    Entity commentEntity = new Entity("Comment");
+    commentEntity.setProperty("username", "user");
+    commentEntity.setProperty("comment", text);
+    commentEntity.setProperty("imageId", imageId);
+    commentEntity.setProperty("date", new Date(minute * 60000));
+    DatastoreServiceFactory.getDatastoreService().put(commentEntity);
+  }
+
+  private JsonObject getPage(String cursor, String quantity) throws Exception {
+    ServletFakes.Response response = get(IMAGE_ID, cursor, quantity);
+    Assert.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    return new JsonParser().parse(response.getBodyText()).getAsJsonObject();
+  }
+
+  private ServletFakes.Response get(String imageId, String cursor, String quantity)
+      throws Exception {
+    Map<String, List<String>> parameters = new HashMap<>();
+    parameters.put("imageId", Arrays.asList(imageId));
+    parameters.put("cursor", Arrays.asList(cursor));
+    parameters.put("quantity", Arrays.asList(quantity));
+
+    ServletFakes.Response response = new ServletFakes.Response();
+    servlet.doGet(ServletFakes.request(parameters, Collections.emptyMap()), response.get());
+    return response;
+  }
+}
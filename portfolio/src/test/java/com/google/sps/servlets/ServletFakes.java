@@ -0,0 +1,185 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Stand-ins for the servlet container. They only do what the servlets of this app use, every
+ * other method returns null, zero or false.
+ */
+final class ServletFakes {
+
+  private ServletFakes() {}
+
+  /**
+   * Return a request with the parameters, each one can have several values, and the headers
+   */
+  static HttpServletRequest request(
+      Map<String, List<String>> parameters, Map<String, String> headers) {
+    return fake(HttpServletRequest.class, (method, args) -> {
+      switch (method.getName()) {
+        case "getParameter":
+          List<String> values = parameters.get(args[0]);
+          return values == null ? null : values.get(0);
+        case "getParameterValues":
+          values = parameters.get(args[0]);
+          return values == null ? null : values.toArray(new String[0]);
+        case "getHeader":
+          return headers.get(args[0]);
+        default:
+          return null;
+      }
+    });
+  }
+
+  /**
+   * Initialize a servlet with a context that holds the attributes
+   */
+  static void init(HttpServlet servlet, Map<String, Object> attributes)
+      throws ServletException {
+    ServletContext context = fake(ServletContext.class, (method, args) -> {
+      switch (method.getName()) {
+        case "getAttribute":
+          return attributes.get(args[0]);
+        case "setAttribute":
+          return attributes.put((String) args[0], args[1]);
+        default:
+          return null;
+      }
+    });
+    servlet.init(fake(ServletConfig.class, (method, args) ->
+        method.getName().equals("getServletContext") ? context : null));
+  }
+
+  /** A response that keeps its status, headers and body */
+  static final class Response {
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private final Map<String, String> headers = new HashMap<>();
+    private int status = HttpServletResponse.SC_OK;
+    private PrintWriter writer;
+
+    private final HttpServletResponse response =
+        fake(HttpServletResponse.class, this::answer);
+
+    /** Keep what the servlet sets on the response */
+    private Object answer(Method method, Object[] args) {
+      switch (method.getName()) {
+        case "setStatus":
+        case "sendError":
+          status = (Integer) args[0];
+          return null;
+        case "setHeader":
+          headers.put((String) args[0], (String) args[1]);
+          return null;
+        case "getWriter":
+          if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8));
+          }
+          return writer;
+        case "getOutputStream":
+          return new BodyStream(body);
+        default:
+          return null;
+      }
+    }
+
+    HttpServletResponse get() {
+      return response;
+    }
+
+    int getStatus() {
+      return status;
+    }
+
+    String getHeader(String name) {
+      return headers.get(name);
+    }
+
+    byte[] getBody() {
+      if (writer != null) {
+        writer.flush();
+      }
+      return body.toByteArray();
+    }
+
+    String getBodyText() {
+      return new String(getBody(), StandardCharsets.UTF_8);
+    }
+  }
+
+  /** How a fake answers the calls to its methods */
+  private interface Answer {
+    Object answer(Method method, Object[] args) throws Exception;
+  }
+
+  /** Return an implementation of an interface that answers every call with {@code answer} */
+  private static <T> T fake(Class<T> type, Answer answer) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+        (proxy, method, args) -> {
+          Object result = answer.answer(method, args);
+          if (result != null || !method.getReturnType().isPrimitive()) {
+            return result;
+          }
+          if (method.getReturnType() == boolean.class) {
+            return false;
+          }
+          return method.getReturnType() == void.class ? null : defaultNumber(method);
+        }));
+  }
+
+  /** Return the zero of the primitive number type a method returns */
+  private static Object defaultNumber(Method method) {
+    return method.getReturnType() == long.class ? (Object) 0L : (Object) 0;
+  }
+
+  /** A servlet output stream that writes into a byte array */
+  private static final class BodyStream extends ServletOutputStream {
+    private final ByteArrayOutputStream body;
+
+    BodyStream(ByteArrayOutputStream body) {
+      this.body = body;
+    }
+
+    @Override
+    public void write(int b) {
+      body.write(b);
+    }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {}
+  }
+}
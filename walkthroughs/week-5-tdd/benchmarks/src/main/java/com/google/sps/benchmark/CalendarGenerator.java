@@ -0,0 +1,115 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.benchmark;
+
+import com.google.sps.Event;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic calendars for the benchmarks. The same seed always generates the same
+ * calendar, so runs of different versions of the code can be compared.
+ */
+public final class CalendarGenerator {
+  private static final int MINUTES_PER_DAY = TimeRange.WHOLE_DAY.duration();
+  private static final int MAX_ATTENDEES_PER_EVENT = 3;
+  private static final int MAX_EVENT_DURATION = 8 * 60;
+
+  private final Random random;
+  private final int attendeeCount;
+
+  /**
+   * Creates a generator for an organization of {@code attendeeCount} people.
+   */
+  public CalendarGenerator(long seed, int attendeeCount) {
+    this.random = new Random(seed);
+    this.attendeeCount = attendeeCount;
+  }
+
+  /**
+   * Returns the name of the person number {@code index}.
+   */
+  public static String person(int index) {
+    return "Person " + index;
+  }
+
+  /**
+   * Generates {@code eventCount} events. {@code overlapDensity} is the average number of events
+   * that a person has at any minute of the day, so 0.5 means that people are busy around half of
+   * the day and 2 means that most people are double booked.
+   */
+  public List<Event> generateEvents(int eventCount, double overlapDensity) {
+    double averageAttendees = (1 + MAX_ATTENDEES_PER_EVENT) / 2.0;
+    double eventsPerPerson = eventCount * averageAttendees / attendeeCount;
+    int averageDuration = (int) Math.max(1,
+        Math.min(MAX_EVENT_DURATION, overlapDensity * MINUTES_PER_DAY / eventsPerPerson));
+
+    List<Event> events = new ArrayList<>(eventCount);
+    for (int i = 0; i < eventCount; i++) {
+      int duration = 1 + random.nextInt(2 * averageDuration);
+      int start = random.nextInt(MINUTES_PER_DAY - Math.min(duration, MINUTES_PER_DAY - 1));
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          randomPeople(1 + random.nextInt(MAX_ATTENDEES_PER_EVENT))));
+    }
+    return events;
+  }
+
+  /**
+   * Generates a request for {@code size} different people, where roughly {@code optionalRatio} of
+   * them are optional.
+   */
+  public MeetingRequest generateRequest(int size, double optionalRatio, long duration) {
+    List<String> people = randomPeople(size);
+    int optionalCount = (int) Math.round(size * optionalRatio);
+
+    MeetingRequest request =
+        new MeetingRequest(people.subList(optionalCount, people.size()), duration);
+    for (String person : people.subList(0, optionalCount)) {
+      request.addOptionalAttendee(person);
+    }
+    return request;
+  }
+
+  /**
+   * Generates {@code count} ranges that start anywhere in the day and last up to two hours.
+   */
+  public TimeRange[] generateRanges(int count) {
+    TimeRange[] ranges = new TimeRange[count];
+    for (int i = 0; i < count; i++) {
+      ranges[i] =
+          TimeRange.fromStartDuration(random.nextInt(MINUTES_PER_DAY), random.nextInt(120));
+    }
+    return ranges;
+  }
+
+  /**
+   * Returns {@code count} different people of the organization.
+   */
+  public List<String> randomPeople(int count) {
+    count = Math.min(count, attendeeCount);
+
+    List<String> people = new ArrayList<>(count);
+    while (people.size() < count) {
+      String person = person(random.nextInt(attendeeCount));
+      if (!people.contains(person)) {
+        people.add(person);
+      }
+    }
+    return people;
+  }
+}
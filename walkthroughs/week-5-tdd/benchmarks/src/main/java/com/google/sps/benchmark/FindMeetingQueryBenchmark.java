@@ -0,0 +1,116 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.benchmark;
+
+import com.google.sps.Event;
+import com.google.sps.EventIndex;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures how many meeting queries can be answered per second on synthetic calendars. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FindMeetingQueryBenchmark {
+  private static final long SEED = 2020;
+  private static final int REQUEST_SIZE = 10;
+  private static final long DURATION = 30;
+  // More groups than EventIndex caches, so going through them in order never hits the cache.
+  private static final int UNCACHED_REQUESTS = 4096;
+
+  @Param({"1000", "10000"})
+  public int eventCount;
+
+  @Param({"100", "1000"})
+  public int attendeeCount;
+
+  @Param({"0.2", "1.0"})
+  public double overlapDensity;
+
+  @Param({"0.0", "0.5"})
+  public double optionalRatio;
+
+  private List<Event> events;
+  private EventIndex index;
+  private MeetingRequest request;
+  private MeetingRequest[] uncachedRequests;
+  private int nextUncached;
+
+  private final FindMeetingQuery intervalQuery =
+      new FindMeetingQuery(FindMeetingQuery.Engine.INTERVAL_INDEX);
+  private final FindMeetingQuery bitmapQuery =
+      new FindMeetingQuery(FindMeetingQuery.Engine.MINUTE_BITMAP);
+
+  @Setup
+  public void setUp() {
+    CalendarGenerator generator = new CalendarGenerator(SEED, attendeeCount);
+    events = generator.generateEvents(eventCount, overlapDensity);
+    index = new EventIndex(events);
+    request = generator.generateRequest(REQUEST_SIZE, optionalRatio, DURATION);
+
+    uncachedRequests = new MeetingRequest[UNCACHED_REQUESTS];
+    for (int i = 0; i < UNCACHED_REQUESTS; i++) {
+      uncachedRequests[i] = generator.generateRequest(REQUEST_SIZE, optionalRatio, DURATION);
+    }
+    nextUncached = 0;
+  }
+
+  @Benchmark
+  public Collection<TimeRange> queryEvents() {
+    return intervalQuery.query(events, request);
+  }
+
+  /** The same request every time, so the merged busy ranges come from the cache of the index */
+  @Benchmark
+  public Collection<TimeRange> queryPrebuiltIndex() {
+    return intervalQuery.query(index, request);
+  }
+
+  /** A different group of attendees every time, so the busy ranges are merged from the index */
+  @Benchmark
+  public Collection<TimeRange> queryPrebuiltIndexCacheMiss() {
+    MeetingRequest uncached = uncachedRequests[nextUncached];
+    nextUncached = (nextUncached + 1) % UNCACHED_REQUESTS;
+    return intervalQuery.query(index, uncached);
+  }
+
+  @Benchmark
+  public Collection<TimeRange> queryMinuteBitmap() {
+    return bitmapQuery.query(events, request);
+  }
+
+  @Benchmark
+  public Collection<TimeRange> queryMaximizingOptionalAttendees() {
+    return intervalQuery.queryMaximizingOptionalAttendees(index, request);
+  }
+}
@@ -0,0 +1,72 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.benchmark;
+
+import com.google.sps.TimeRange;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures the comparisons between ranges, each invocation compares every pair of neighbours. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimeRangeBenchmark {
+  private static final long SEED = 2020;
+  private static final int RANGE_COUNT = 1024;
+
+  private TimeRange[] ranges;
+
+  @Setup
+  public void setUp() {
+    ranges = new CalendarGenerator(SEED, 1).generateRanges(RANGE_COUNT);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RANGE_COUNT - 1)
+  public int overlaps() {
+    int count = 0;
+    for (int i = 1; i < ranges.length; i++) {
+      if (ranges[i - 1].overlaps(ranges[i])) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RANGE_COUNT - 1)
+  public int contains() {
+    int count = 0;
+    for (int i = 1; i < ranges.length; i++) {
+      if (ranges[i - 1].contains(ranges[i])) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
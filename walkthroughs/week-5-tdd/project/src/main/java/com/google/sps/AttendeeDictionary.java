@@ -0,0 +1,277 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary that gives every attendee name a dense {@code int} id. Events keep the sorted ids of
+ * their attendees instead of a set of names, which takes less memory and lets two groups of
+ * attendees be compared with a merge of two {@code int} arrays. Ids are never reused.
+ *
+ * <p>Events hold on to the {@link Attendee} of each of their names and the dictionary only keeps
+ * weak references to them, so a name is forgotten once no event has it anymore. Names that come
+ * and go with the writes to the calendar don't make the dictionary grow forever.
+ */
+public final class AttendeeDictionary {
+  private static final AttendeeDictionary INSTANCE = new AttendeeDictionary();
+
+  private final ConcurrentHashMap<String, AttendeeReference> attendees =
+      new ConcurrentHashMap<>();
+  private final ReferenceQueue<Attendee> released = new ReferenceQueue<>();
+  private int nextId = 0;
+
+  /**
+   * An attendee name and its id. The id stays the same as long as something holds this object.
+   */
+  public static final class Attendee {
+    private final String name;
+    private final int id;
+
+    private Attendee(String name, int id) {
+      this.name = name;
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getId() {
+      return id;
+    }
+  }
+
+  /** Weak reference from a name to its attendee, it remembers the name to clean up the map. */
+  private static final class AttendeeReference extends WeakReference<Attendee> {
+    private final String name;
+
+    AttendeeReference(Attendee attendee, ReferenceQueue<Attendee> queue) {
+      super(attendee, queue);
+      this.name = attendee.getName();
+    }
+  }
+
+  private AttendeeDictionary() {}
+
+  /**
+   * Returns the dictionary shared by every event.
+   */
+  public static AttendeeDictionary getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the attendee with {@code name}, giving it a new id if nothing holds it.
+   */
+  public Attendee intern(String name) {
+    Attendee attendee = get(name);
+    return attendee != null ? attendee : add(name);
+  }
+
+  /**
+   * Returns the id of {@code name}, or -1 if no one holds an attendee with that name.
+   */
+  public int find(String name) {
+    Attendee attendee = get(name);
+    return attendee != null ? attendee.getId() : -1;
+  }
+
+  /**
+   * Returns the attendees with {@code names} sorted by id without repetitions, interning the new
+   * ones.
+   */
+  public Attendee[] internAll(Collection<String> names) {
+    Attendee[] result = new Attendee[names.size()];
+    int count = 0;
+    for (String name : names) {
+      result[count++] = intern(name);
+    }
+    Arrays.sort(result, 0, count, (a, b) -> Integer.compare(a.getId(), b.getId()));
+
+    int unique = 0;
+    for (int i = 0; i < count; i++) {
+      if (unique == 0 || result[unique - 1] != result[i]) {
+        result[unique++] = result[i];
+      }
+    }
+    return unique == result.length ? result : Arrays.copyOf(result, unique);
+  }
+
+  /**
+   * Returns the ids of the attendees, in the same order.
+   */
+  public static int[] idsOf(Attendee[] attendees) {
+    int[] ids = new int[attendees.length];
+    for (int i = 0; i < attendees.length; i++) {
+      ids[i] = attendees[i].getId();
+    }
+    return ids;
+  }
+
+  /**
+   * Returns the sorted ids of the {@code names} that have one, without repetitions. Names that
+   * no event has can't be attending any event, so they are left out and the dictionary doesn't
+   * grow with the names of queries.
+   */
+  public int[] findAll(Collection<String> names) {
+    int[] result = new int[names.size()];
+    int count = 0;
+    for (String name : names) {
+      int id = find(name);
+      if (id >= 0) {
+        result[count++] = id;
+      }
+    }
+    return sortedUnique(result, count);
+  }
+
+  /**
+   * Returns a read-only set of the names of the attendees sorted by id. The set holds on to the
+   * attendees, the array must not change afterwards.
+   */
+  public Set<String> asNameSet(Attendee[] attendees) {
+    return new NameSet(attendees);
+  }
+
+  /**
+   * Returns true if the sorted arrays of ids have at least one id in common.
+   */
+  public static boolean intersects(int[] a, int[] b) {
+    int i = 0;
+    int j = 0;
+    while (i < a.length && j < b.length) {
+      if (a[i] == b[j]) {
+        return true;
+      } else if (a[i] < b[j]) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return false;
+  }
+
+  /** Return the attendee with {@code name} if something still holds it */
+  private Attendee get(String name) {
+    AttendeeReference reference = attendees.get(name);
+    return reference != null ? reference.get() : null;
+  }
+
+  /** Give {@code name} the next id, unless another thread did it first */
+  private synchronized Attendee add(String name) {
+    forgetReleased();
+
+    Attendee existing = get(name);
+    if (existing != null) {
+      return existing;
+    }
+
+    Attendee attendee = new Attendee(name, nextId++);
+    attendees.put(name, new AttendeeReference(attendee, released));
+    return attendee;
+  }
+
+  /** Remove the names whose attendees were garbage collected */
+  private void forgetReleased() {
+    Reference<? extends Attendee> reference;
+    while ((reference = released.poll()) != null) {
+      AttendeeReference attendee = (AttendeeReference) reference;
+      // The name could have a newer attendee already, only remove this one.
+      attendees.remove(attendee.name, attendee);
+    }
+  }
+
+  /** Sort the first {@code count} ids and drop the repeated ones */
+  private static int[] sortedUnique(int[] ids, int count) {
+    Arrays.sort(ids, 0, count);
+
+    int unique = 0;
+    for (int i = 0; i < count; i++) {
+      if (unique == 0 || ids[unique - 1] != ids[i]) {
+        ids[unique++] = ids[i];
+      }
+    }
+    return unique == ids.length ? ids : Arrays.copyOf(ids, unique);
+  }
+
+  /** Read-only set of names backed by an array of attendees sorted by id. */
+  private final class NameSet extends AbstractSet<String> {
+    private final Attendee[] attendees;
+
+    NameSet(Attendee[] attendees) {
+      this.attendees = attendees;
+    }
+
+    @Override
+    public boolean contains(Object other) {
+      if (!(other instanceof String)) {
+        return false;
+      }
+      int id = find((String) other);
+      if (id < 0) {
+        return false;
+      }
+
+      int low = 0;
+      int high = attendees.length - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        int middleId = attendees[middle].getId();
+        if (middleId == id) {
+          return true;
+        } else if (middleId < id) {
+          low = middle + 1;
+        } else {
+          high = middle - 1;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public int size() {
+      return attendees.length;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      return new Iterator<String>() {
+        private int next = 0;
+
+        @Override
+        public boolean hasNext() {
+          return next < attendees.length;
+        }
+
+        @Override
+        public String next() {
+          if (next >= attendees.length) {
+            throw new NoSuchElementException();
+          }
+          return attendees[next++].getName();
+        }
+      };
+    }
+  }
+}
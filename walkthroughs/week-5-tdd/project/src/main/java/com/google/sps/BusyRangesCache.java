@@ -0,0 +1,113 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache of merged busy ranges keyed by the set of attendees they were merged for. Each attendee
+ * remembers the keys it is part of, so a change to the calendar of one attendee drops exactly the
+ * entries that included them. The least recently used entries are dropped once the cache is full.
+ * This class is not thread-safe, {@code EventIndex} guards it with its own lock.
+ */
+final class BusyRangesCache {
+  private final int maxEntries;
+  private final Map<String, Set<Set<String>>> keysByAttendee = new HashMap<>();
+  private final LinkedHashMap<Set<String>, List<TimeRange>> entries;
+
+  BusyRangesCache(int maxEntries) {
+    this.maxEntries = maxEntries;
+    this.entries = new LinkedHashMap<Set<String>, List<TimeRange>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Set<String>, List<TimeRange>> eldest) {
+        if (size() <= BusyRangesCache.this.maxEntries) {
+          return false;
+        }
+        forgetKey(eldest.getKey(), null);
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Returns the set used as key for {@code attendees}, the order and repetitions of the
+   * attendees don't matter.
+   */
+  static Set<String> keyOf(Collection<String> attendees) {
+    return Collections.unmodifiableSet(new HashSet<>(attendees));
+  }
+
+  /**
+   * Returns the busy ranges stored for {@code key}, or null if there are none.
+   */
+  List<TimeRange> get(Set<String> key) {
+    return entries.get(key);
+  }
+
+  /**
+   * Stores the busy ranges of the attendees in {@code key}.
+   */
+  void put(Set<String> key, List<TimeRange> busyRanges) {
+    for (String attendee : key) {
+      keysByAttendee.computeIfAbsent(attendee, name -> new HashSet<>()).add(key);
+    }
+    entries.put(key, Collections.unmodifiableList(busyRanges));
+  }
+
+  /**
+   * Drops every entry that includes {@code attendee}.
+   */
+  void invalidate(String attendee) {
+    Set<Set<String>> keys = keysByAttendee.remove(attendee);
+    if (keys == null) {
+      return;
+    }
+
+    for (Set<String> key : keys) {
+      entries.remove(key);
+      forgetKey(key, attendee);
+    }
+  }
+
+  /**
+   * Returns the number of entries in the cache.
+   */
+  int size() {
+    return entries.size();
+  }
+
+  /** Remove {@code key} from the keys of its attendees, except {@code skipped} */
+  private void forgetKey(Set<String> key, String skipped) {
+    for (String attendee : key) {
+      if (attendee.equals(skipped)) {
+        continue;
+      }
+
+      Set<Set<String>> keys = keysByAttendee.get(attendee);
+      if (keys != null) {
+        keys.remove(key);
+        if (keys.isEmpty()) {
+          keysByAttendee.remove(attendee);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,298 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps;
+
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Query.CompositeFilterOperator;
+import com.google.appengine.api.datastore.Query.FilterOperator;
+import com.google.appengine.api.datastore.Query.FilterPredicate;
+import com.google.appengine.api.datastore.QueryResultList;
+import com.google.appengine.api.datastore.Transaction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+/**
+ * Event store backed by Datastore. The events are spread over a fixed number of shards by their
+ * title and time, so equal events always share a shard. Each shard is an entity group: an entity
+ * of kind {@code EventShard} that counts its writes, with the events of kind {@code Event} and a
+ * record of kind {@code EventChange} for each of the last writes under it. A write only locks its
+ * own shard, and the other instances of the app catch up by reading the change records of the
+ * shards that moved. Pages are read in key order with Datastore cursors. Listeners only hear
+ * about the writes made through this instance of the store.
+ */
+public final class DatastoreEventStore implements EventStore {
+  private static final String KIND = "Event";
+  private static final String SHARD_KIND = "EventShard";
+  private static final String CHANGE_KIND = "EventChange";
+  private static final int SHARDS = 20;
+  // Change records kept in each shard. An instance that is further behind reads every event again.
+  private static final int KEPT_CHANGES = 1000;
+  private static final int MAX_ATTEMPTS = 3;
+
+  private static final List<Key> SHARD_KEYS = createShardKeys();
+
+  private final DatastoreService datastore;
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Creates a store that uses the default Datastore of the app.
+   */
+  public DatastoreEventStore() {
+    this(DatastoreServiceFactory.getDatastoreService());
+  }
+
+  public DatastoreEventStore(DatastoreService datastore) {
+    this.datastore = datastore;
+  }
+
+  @Override
+  public void add(Event event) {
+    Key shardKey = shardKeyOf(event);
+    Entity eventEntity = new Entity(KIND, shardKey);
+    setEventProperties(eventEntity, event);
+    writeToShard(shardKey, event, true, txn -> {
+      datastore.put(txn, eventEntity);
+      return true;
+    });
+
+    for (Listener listener : listeners) {
+      listener.eventAdded(event);
+    }
+  }
+
+  @Override
+  public boolean remove(Event event) {
+    Key shardKey = shardKeyOf(event);
+    boolean removed = writeToShard(shardKey, event, false, txn -> {
+      // Look for entities with the same title and time in the shard, then compare the attendees
+      // here. An ancestor query is consistent, so an event that was just added is found.
+      Query query = new Query(KIND, shardKey).setFilter(CompositeFilterOperator.and(
+          new FilterPredicate("title", FilterOperator.EQUAL, event.getTitle()),
+          new FilterPredicate("start", FilterOperator.EQUAL, event.getWhen().start()),
+          new FilterPredicate("duration", FilterOperator.EQUAL, event.getWhen().duration())));
+
+      for (Entity entity : datastore.prepare(txn, query).asIterable()) {
+        if (event.equals(createEvent(entity))) {
+          datastore.delete(txn, entity.getKey());
+          return true;
+        }
+      }
+      return false;
+    });
+
+    if (removed) {
+      for (Listener listener : listeners) {
+        listener.eventRemoved(event);
+      }
+    }
+    return removed;
+  }
+
+  @Override
+  public Page getPage(String cursor, int limit) {
+    FetchOptions options = FetchOptions.Builder.withLimit(limit);
+    if (cursor != null) {
+      options.startCursor(Cursor.fromWebSafeString(cursor));
+    }
+
+    QueryResultList<Entity> entities =
+        datastore.prepare(new Query(KIND)).asQueryResultList(options);
+
+    List<Event> events = new ArrayList<>();
+    for (Entity entity : entities) {
+      events.add(createEvent(entity));
+    }
+
+    // A short page means there is nothing left to read.
+    String nextCursor =
+        events.size() < limit ? null : entities.getCursor().toWebSafeString();
+    return new Page(events, nextCursor);
+  }
+
+  @Override
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  @Override
+  public Version getVersion() {
+    Map<Key, Entity> shards = datastore.get(SHARD_KEYS);
+    long[] writes = new long[SHARDS];
+    for (int shard = 0; shard < SHARDS; shard++) {
+      Entity shardEntity = shards.get(SHARD_KEYS.get(shard));
+      writes[shard] = shardEntity == null ? 0 : (Long) shardEntity.getProperty("writes");
+    }
+    return new Version(writes);
+  }
+
+  @Override
+  public Version readChanges(Version since, Listener listener) {
+    if (since.getParts() != SHARDS) {
+      return null;
+    }
+
+    Version current = getVersion();
+    for (int shard = 0; shard < SHARDS; shard++) {
+      long from = since.getWrites(shard);
+      long to = current.getWrites(shard);
+      if (from == to) {
+        continue;
+      }
+      if (from > to || to - from > KEPT_CHANGES) {
+        return null;
+      }
+
+      // Change records are numbered by the write they record, so the ones in (from, to] are the
+      // writes this shard had since. Ancestor queries are consistent, none of them is missing.
+      Key shardKey = SHARD_KEYS.get(shard);
+      Query query = new Query(CHANGE_KIND, shardKey)
+          .setFilter(CompositeFilterOperator.and(
+              new FilterPredicate(Entity.KEY_RESERVED_PROPERTY,
+                  FilterOperator.GREATER_THAN_OR_EQUAL, changeKey(shardKey, from + 1)),
+              new FilterPredicate(Entity.KEY_RESERVED_PROPERTY,
+                  FilterOperator.LESS_THAN_OR_EQUAL, changeKey(shardKey, to))))
+          .addSort(Entity.KEY_RESERVED_PROPERTY);
+      List<Entity> changes = datastore.prepare(query).asList(FetchOptions.Builder.withDefaults());
+      if (changes.size() != to - from) {
+        return null;
+      }
+
+      for (Entity change : changes) {
+        if ((Boolean) change.getProperty("added")) {
+          listener.eventAdded(createEvent(change));
+        } else {
+          listener.eventRemoved(createEvent(change));
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Make a write in the entity group of a shard and record it in the same transaction. Nothing
+   * is recorded if {@code write} returns false. Writes to the same shard conflict, so they are
+   * retried a few times.
+   */
+  private boolean writeToShard(
+      Key shardKey, Event event, boolean added, Predicate<Transaction> write) {
+    for (int attempt = 1; ; attempt++) {
+      Transaction txn = datastore.beginTransaction();
+      try {
+        Entity shardEntity;
+        try {
+          shardEntity = datastore.get(txn, shardKey);
+        } catch (EntityNotFoundException ex) {
+          shardEntity = new Entity(shardKey);
+          shardEntity.setProperty("writes", 0L);
+        }
+
+        if (!write.test(txn)) {
+          return false;
+        }
+
+        long writes = (Long) shardEntity.getProperty("writes") + 1;
+        shardEntity.setProperty("writes", writes);
+
+        Entity change = new Entity(changeKey(shardKey, writes));
+        setEventProperties(change, event);
+        change.setProperty("added", added);
+
+        datastore.put(txn, Arrays.asList(shardEntity, change));
+        if (writes > KEPT_CHANGES) {
+          datastore.delete(txn, changeKey(shardKey, writes - KEPT_CHANGES));
+        }
+        txn.commit();
+        return true;
+      } catch (ConcurrentModificationException ex) {
+        if (attempt == MAX_ATTEMPTS) {
+          throw ex;
+        }
+      } finally {
+        if (txn.isActive()) {
+          txn.rollback();
+        }
+      }
+    }
+  }
+
+  /**
+   * Return the key of the shard of an event, picked from its title and time
+   */
+  private static Key shardKeyOf(Event event) {
+    int hash = Objects.hash(event.getTitle(), event.getWhen().start(), event.getWhen().duration());
+    return SHARD_KEYS.get(Math.floorMod(hash, SHARDS));
+  }
+
+  /**
+   * Return the key of the change record of a write to a shard
+   */
+  private static Key changeKey(Key shardKey, long write) {
+    return KeyFactory.createKey(shardKey, CHANGE_KIND, write);
+  }
+
+  /**
+   * Return the keys of all the shards, numbered from 1
+   */
+  private static List<Key> createShardKeys() {
+    List<Key> keys = new ArrayList<>();
+    for (int shard = 1; shard <= SHARDS; shard++) {
+      keys.add(KeyFactory.createKey(SHARD_KIND, shard));
+    }
+    return Collections.unmodifiableList(keys);
+  }
+
+  /**
+   * Store the fields of an event in an entity
+   */
+  private static void setEventProperties(Entity entity, Event event) {
+    entity.setProperty("title", event.getTitle());
+    entity.setProperty("start", event.getWhen().start());
+    entity.setProperty("duration", event.getWhen().duration());
+    entity.setProperty("attendees", new ArrayList<>(event.getAttendees()));
+  }
+
+  /**
+   * Return the event stored in an entity
+   */
+  @SuppressWarnings("unchecked")
+  private static Event createEvent(Entity eventEntity) {
+    String title = (String) eventEntity.getProperty("title");
+    int start = ((Long) eventEntity.getProperty("start")).intValue();
+    int duration = ((Long) eventEntity.getProperty("duration")).intValue();
+
+    // Datastore doesn't store empty lists, they come back as null.
+    Collection<String> attendees = (Collection<String>) eventEntity.getProperty("attendees");
+    if (attendees == null) {
+      attendees = Collections.emptyList();
+    }
+
+    return new Event(title, TimeRange.fromStartDuration(start, duration), attendees);
+  }
+}
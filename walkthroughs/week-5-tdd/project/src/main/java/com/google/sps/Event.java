@@ -14,9 +14,8 @@
 
 package com.google.sps;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -26,7 +25,12 @@ import java.util.Set;
 public final class Event {
   private final String title;
   private final TimeRange when;
-  private final Set<String> attendees = new HashSet<>();
+  // Sorted ids of the attendees in the shared {@code AttendeeDictionary}.
+  private final transient int[] attendeeIds;
+  // Read-only view of the names behind {@code attendeeIds}. It is created once so that
+  // {@code getAttendees()} doesn't allocate, and it is what Gson writes as the attendees. It also
+  // keeps the names of the event in the dictionary for as long as the event exists.
+  private final Set<String> attendees;
 
   /**
    * Creates a new event.
@@ -48,9 +52,12 @@ public final class Event {
       throw new IllegalArgumentException("attendees cannot be null. Use empty array instead.");
     }
 
+    AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+    AttendeeDictionary.Attendee[] interned = dictionary.internAll(attendees);
     this.title = title;
     this.when = when;
-    this.attendees.addAll(attendees);
+    this.attendeeIds = AttendeeDictionary.idsOf(interned);
+    this.attendees = dictionary.asNameSet(interned);
   }
 
   /**
@@ -71,9 +78,16 @@ public final class Event {
    * Returns a read-only set of required attendees for this event.
    */
   public Set<String> getAttendees() {
-    // Return the attendees as an unmodifiable set so that the caller can't change our
-    // internal data.
-    return Collections.unmodifiableSet(attendees);
+    // The view can't be modified, so the caller can't change our internal data.
+    return attendees;
+  }
+
+  /**
+   * Returns true if any of the attendees of this event has one of the sorted {@code ids} of the
+   * shared {@code AttendeeDictionary}. Nothing is allocated, so it can be used in hot loops.
+   */
+  public boolean hasAnyAttendee(int[] ids) {
+    return AttendeeDictionary.intersects(attendeeIds, ids);
   }
 
   @Override
@@ -89,8 +103,9 @@ public final class Event {
   }
 
   private static boolean equals(Event a, Event b) {
-    // {@code attendees} must be a set for equals to work as expected. According to the {@code Set}
-    // interface documentation, equals will check for set-equality across all set implementations.
-    return a.title.equals(b.title) && a.when.equals(b.when) && a.attendees.equals(b.attendees);
+    // Every name has a single id and the ids are sorted without repetitions, so equal arrays of
+    // ids mean equal sets of attendees.
+    return a.title.equals(b.title) && a.when.equals(b.when)
+        && Arrays.equals(a.attendeeIds, b.attendeeIds);
   }
 }
@@ -0,0 +1,208 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index of the busy time of every attendee. Each attendee keeps its own list of ranges sorted by
+ * start time, so a query only has to look at the ranges of the people it asks about instead of
+ * every event in the calendar. The index is built once and then kept up to date with
+ * {@code add} and {@code remove}. The merged busy ranges of recently asked groups are cached until
+ * the calendar of one of their attendees changes.
+ *
+ * <p>Queries only hold a read lock while they copy the ranges of their attendees, the sort and
+ * merge run without any lock, so many queries run in parallel.
+ */
+public final class EventIndex {
+  private static final int MAX_CACHED_GROUPS = 1024;
+
+  private final Map<String, List<TimeRange>> busyByAttendee = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  // Guarded by its own lock, reading an entry moves it in the LRU order.
+  private final BusyRangesCache cache = new BusyRangesCache(MAX_CACHED_GROUPS);
+  // Number of writes so far, guarded by the lock of the cache. A merge that started before a
+  // write is not cached, the write could have changed its ranges.
+  private long version = 0;
+
+  /**
+   * Creates an empty index.
+   */
+  public EventIndex() {}
+
+  /**
+   * Creates an index with the busy time of all the {@code events}.
+   */
+  public EventIndex(Collection<Event> events) {
+    for (Event event : events) {
+      add(event);
+    }
+  }
+
+  /**
+   * Marks every attendee of {@code event} as busy during the event.
+   */
+  public void add(Event event) {
+    TimeRange when = event.getWhen();
+    lock.writeLock().lock();
+    try {
+      for (String attendee : event.getAttendees()) {
+        List<TimeRange> ranges =
+            busyByAttendee.computeIfAbsent(attendee, key -> new ArrayList<>());
+        ranges.add(insertionPoint(ranges, when), when);
+        invalidate(attendee);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes the busy time that {@code event} added. Returns {@code false} if the event was not in
+   * the index.
+   */
+  public boolean remove(Event event) {
+    TimeRange when = event.getWhen();
+    boolean removed = false;
+    lock.writeLock().lock();
+    try {
+      for (String attendee : event.getAttendees()) {
+        List<TimeRange> ranges = busyByAttendee.get(attendee);
+        if (ranges == null) {
+          continue;
+        }
+
+        // Ranges with the same start are next to each other, look for an equal one going
+        // backwards.
+        for (int i = insertionPoint(ranges, when) - 1;
+            i >= 0 && ranges.get(i).start() == when.start(); i--) {
+          if (ranges.get(i).equals(when)) {
+            ranges.remove(i);
+            invalidate(attendee);
+            removed = true;
+            break;
+          }
+        }
+
+        if (ranges.isEmpty()) {
+          busyByAttendee.remove(attendee);
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+    return removed;
+  }
+
+  /**
+   * Returns the times when at least one of the {@code attendees} is busy, sorted by start time.
+   * Overlapping ranges are merged together, ranges that only touch each other are kept apart.
+   * The returned list is read-only.
+   */
+  public List<TimeRange> getBusyRanges(Collection<String> attendees) {
+    Set<String> key = BusyRangesCache.keyOf(attendees);
+    List<TimeRange> ranges = new ArrayList<>();
+    long readVersion;
+    lock.readLock().lock();
+    try {
+      synchronized (cache) {
+        List<TimeRange> cached = cache.get(key);
+        if (cached != null) {
+          return cached;
+        }
+        readVersion = version;
+      }
+
+      for (String attendee : key) {
+        List<TimeRange> attendeeRanges = busyByAttendee.get(attendee);
+        if (attendeeRanges != null) {
+          ranges.addAll(attendeeRanges);
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    // The list is made of already sorted runs, which the merge sort of List.sort detects, so this
+    // costs far less than sorting from scratch.
+    ranges.sort(TimeRange.ORDER_BY_START);
+    List<TimeRange> merged = merge(ranges);
+
+    synchronized (cache) {
+      if (version == readVersion) {
+        cache.put(key, merged);
+        return cache.get(key);
+      }
+    }
+    return Collections.unmodifiableList(merged);
+  }
+
+  /** Drop the cached groups of {@code attendee}, called with the write lock held */
+  private void invalidate(String attendee) {
+    synchronized (cache) {
+      version++;
+      cache.invalidate(attendee);
+    }
+  }
+
+  /** Merge overlapping ranges of a list sorted by start time */
+  private static List<TimeRange> merge(List<TimeRange> sortedRanges) {
+    List<TimeRange> merged = new ArrayList<>();
+
+    int start = 0;
+    int end = -1;
+    for (TimeRange range : sortedRanges) {
+      if (range.start() < end) {
+        end = Math.max(end, range.end());
+        continue;
+      }
+
+      if (end >= 0) {
+        merged.add(TimeRange.fromStartEnd(start, end, false));
+      }
+      start = range.start();
+      end = range.end();
+    }
+
+    if (end >= 0) {
+      merged.add(TimeRange.fromStartEnd(start, end, false));
+    }
+
+    return merged;
+  }
+
+  /** Return the position after the last range that starts before or at {@code range} */
+  private static int insertionPoint(List<TimeRange> sortedRanges, TimeRange range) {
+    int low = 0;
+    int high = sortedRanges.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (sortedRanges.get(middle).start() <= range.start()) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+}
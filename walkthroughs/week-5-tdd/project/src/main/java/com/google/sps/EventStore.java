@@ -0,0 +1,151 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Storage for the events of the calendar. Events are read in pages, so a large calendar can be
+ * loaded without holding all of it in one request. Listeners are told about every write made
+ * through the same instance, which is how indexes over the calendar are kept up to date without
+ * rebuilding them. Writes made somewhere else show up as a change of {@code getVersion}, and
+ * {@code readChanges} replays them.
+ */
+public interface EventStore {
+  /** The number of events read at a time by {@code forEach}. */
+  int DEFAULT_PAGE_SIZE = 500;
+
+  /**
+   * Something that wants to know when the events of a store change.
+   */
+  interface Listener {
+    void eventAdded(Event event);
+
+    void eventRemoved(Event event);
+  }
+
+  /**
+   * A page of events and the cursor to read the page after it.
+   */
+  final class Page {
+    private final List<Event> events;
+    private final String nextCursor;
+
+    public Page(List<Event> events, String nextCursor) {
+      this.events = Collections.unmodifiableList(events);
+      this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Returns the events of this page.
+     */
+    public List<Event> getEvents() {
+      return events;
+    }
+
+    /**
+     * Returns the cursor of the next page, or null if this is the last page.
+     */
+    public String getNextCursor() {
+      return nextCursor;
+    }
+  }
+
+  /**
+   * A point in the history of writes to a store. A store can count the writes of each of its
+   * parts on their own, so that writes to different parts don't wait for each other.
+   */
+  final class Version {
+    private final long[] writes;
+
+    public Version(long... writes) {
+      this.writes = writes.clone();
+    }
+
+    /**
+     * Returns the number of parts that count their writes.
+     */
+    public int getParts() {
+      return writes.length;
+    }
+
+    /**
+     * Returns the number of writes made to a part of the store.
+     */
+    public long getWrites(int part) {
+      return writes[part];
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(writes);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Version && Arrays.equals(writes, ((Version) other).writes);
+    }
+  }
+
+  /**
+   * Stores {@code event} and tells the listeners about it.
+   */
+  void add(Event event);
+
+  /**
+   * Removes one event equal to {@code event} and tells the listeners about it. Returns
+   * {@code false} if there was no such event.
+   */
+  boolean remove(Event event);
+
+  /**
+   * Returns up to {@code limit} events that come after {@code cursor}, in the same order every
+   * time. A null cursor starts from the first event.
+   */
+  Page getPage(String cursor, int limit);
+
+  /**
+   * Registers a listener for the writes made through this store.
+   */
+  void addListener(Listener listener);
+
+  /**
+   * Returns the version of the store, which moves with every write made through this instance or
+   * any other one.
+   */
+  Version getVersion();
+
+  /**
+   * Tells {@code listener} about the writes made after {@code since}, through this instance or any
+   * other one, and returns the version that they lead to. The writes of equal events are told in
+   * the order they were made. Returns null if the store no longer knows about some of the writes,
+   * then it has to be read again.
+   */
+  Version readChanges(Version since, Listener listener);
+
+  /**
+   * Goes through every event of the store, reading it one page at a time.
+   */
+  default void forEach(Consumer<Event> action) {
+    String cursor = null;
+    do {
+      Page page = getPage(cursor, DEFAULT_PAGE_SIZE);
+      page.getEvents().forEach(action);
+      cursor = page.getNextCursor();
+    } while (cursor != null);
+  }
+}
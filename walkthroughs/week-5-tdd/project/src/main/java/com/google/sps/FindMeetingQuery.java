@@ -18,7 +18,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 
@@ -29,41 +28,277 @@ import java.util.List;
  * Else, return only possible time slots that work for the mandatory attendees.
  */
 public final class FindMeetingQuery {
+  /** The ways to compute the free time of the attendees. */
+  public enum Engine {
+    /** Merge the sorted busy ranges of each attendee. */
+    INTERVAL_INDEX,
+    /** Mark busy minutes in a bitmap of the day and scan it for free runs. */
+    MINUTE_BITMAP
+  }
+
+  private final Engine engine;
+
+  public FindMeetingQuery() {
+    this(Engine.INTERVAL_INDEX);
+  }
+
+  public FindMeetingQuery(Engine engine) {
+    this.engine = engine;
+  }
+
   public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
+    if (engine == Engine.MINUTE_BITMAP && request.getDuration() > 0) {
+      return queryBitmap(events, request);
+    }
+    return query(new EventIndex(events), request);
+  }
+
+  /**
+   * Same as {@code query(Collection<Event>, MeetingRequest)} but reads the busy times from an
+   * index that was built beforehand, so only the events of the requested attendees are visited.
+   */
+  public Collection<TimeRange> query(EventIndex index, MeetingRequest request) {
     Collection<String> attendees = request.getAttendees();
     long duration = request.getDuration();
 
-    List<Event> byStartTime = new ArrayList<>(events);
-    byStartTime.sort(Comparator.comparing(Event::getWhen, TimeRange.ORDER_BY_START));
-
     Collection<String> allAttendees = new HashSet<>();
     allAttendees.addAll(attendees);
     allAttendees.addAll(request.getOptionalAttendees());
 
-    List<TimeRange> freeSlots = findPossibleTimeSlots(byStartTime, allAttendees, duration);
+    List<TimeRange> freeSlots =
+        findPossibleTimeSlots(index.getBusyRanges(allAttendees), duration);
     if (freeSlots.isEmpty()) {
-      freeSlots = findPossibleTimeSlots(byStartTime, attendees, duration);
+      freeSlots = findPossibleTimeSlots(index.getBusyRanges(attendees), duration);
     }
     
     return freeSlots;
   }
 
+  /**
+   * Find the possible time slots for a requested meeting on any day of {@code window}. The events
+   * and the returned slots are in minutes since the epoch, see {@code TimeRange.fromInstants}.
+   * The whole window is searched in one pass, slots can run across days when the window allows it.
+   */
+  public Collection<TimeRange> query(
+      Collection<Event> events, MeetingRequest request, SearchWindow window) {
+    return query(new EventIndex(events), request, window);
+  }
+
+  /**
+   * Same as {@code query(Collection<Event>, MeetingRequest, SearchWindow)} but reads the busy
+   * times from an index that was built beforehand.
+   */
+  public Collection<TimeRange> query(
+      EventIndex index, MeetingRequest request, SearchWindow window) {
+    Collection<String> attendees = request.getAttendees();
+    long duration = request.getDuration();
+
+    Collection<String> allAttendees = new HashSet<>();
+    allAttendees.addAll(attendees);
+    allAttendees.addAll(request.getOptionalAttendees());
+
+    List<TimeRange> freeSlots = findPossibleTimeSlots(
+        index.getBusyRanges(allAttendees), window.getOpenRanges(), duration);
+    if (freeSlots.isEmpty()) {
+      freeSlots = findPossibleTimeSlots(
+          index.getBusyRanges(attendees), window.getOpenRanges(), duration);
+    }
+
+    return freeSlots;
+  }
+
+  /**
+   * Find the time slots where all the mandatory attendees and as many optional attendees as
+   * possible can join. Unlike {@code query}, which needs every optional attendee or none, this
+   * keeps the slots that fit the largest number of them.
+   */
+  public Collection<TimeRange> queryMaximizingOptionalAttendees(
+      Collection<Event> events, MeetingRequest request) {
+    return queryMaximizingOptionalAttendees(new EventIndex(events), request);
+  }
+
+  /**
+   * Same as {@code queryMaximizingOptionalAttendees(Collection<Event>, MeetingRequest)} but reads
+   * the busy times from an index that was built beforehand.
+   */
+  public Collection<TimeRange> queryMaximizingOptionalAttendees(
+      EventIndex index, MeetingRequest request) {
+    List<TimeRange> timeSlots = new ArrayList<>();
+    if (request.getDuration() > TimeRange.WHOLE_DAY.duration()) {
+      return timeSlots;
+    }
+
+    // Work with the minutes where the meeting could start. A busy range [start, end) blocks every
+    // meeting that starts in (start - duration, end), a meeting of no duration is blocked like one
+    // of a minute. Like in query, the free time at the end of the day only counts up to
+    // END_OF_DAY, so the last start is END_OF_DAY - duration.
+    int duration = (int) request.getDuration();
+    int blocking = Math.max(duration, 1);
+    int startsEnd = TimeRange.END_OF_DAY - duration + 1;
+
+    // Each endpoint packs its position in the upper half and its attendee in the lower half, so
+    // sorting the longs sorts the endpoints by position. Attendee 0 stands for all the mandatory
+    // attendees, the optional attendees are numbered from 1.
+    List<String> optionalAttendees = new ArrayList<>(request.getOptionalAttendees());
+    List<List<TimeRange>> busyByAttendee = new ArrayList<>();
+    busyByAttendee.add(index.getBusyRanges(request.getAttendees()));
+    int endpointCount = 2 * busyByAttendee.get(0).size();
+    for (String attendee : optionalAttendees) {
+      List<TimeRange> busy = index.getBusyRanges(Collections.singleton(attendee));
+      busyByAttendee.add(busy);
+      endpointCount += 2 * busy.size();
+    }
+
+    long[] endpoints = new long[endpointCount];
+    int endpointsSize = 0;
+    for (int attendee = 0; attendee < busyByAttendee.size(); attendee++) {
+      for (TimeRange busy : busyByAttendee.get(attendee)) {
+        int from = Math.max(busy.start() - blocking + 1, 0);
+        int to = Math.min(busy.end(), startsEnd);
+        if (from < to) {
+          endpoints[endpointsSize++] = ((long) from << 32) | ((long) attendee << 1) | 1;
+          endpoints[endpointsSize++] = ((long) to << 32) | ((long) attendee << 1);
+        }
+      }
+    }
+    Arrays.sort(endpoints, 0, endpointsSize);
+
+    // Sweep the possible starts keeping how many ranges block each attendee. Every stretch of
+    // starts free for the mandatory attendees is stored as
+    // {from, to, blocked optional attendees, end of the free time}.
+    int[] blockingRanges = new int[optionalAttendees.size() + 1];
+    int blockedOptional = 0;
+    int fewestBlocked = Integer.MAX_VALUE;
+    List<int[]> stretches = new ArrayList<>();
+
+    int position = 0;
+    int next = 0;
+    while (position < startsEnd) {
+      for (; next < endpointsSize && endpointPosition(endpoints[next]) == position; next++) {
+        long endpoint = endpoints[next];
+        int attendee = (int) (endpoint >>> 1) & 0x7FFFFFFF;
+        boolean opens = (endpoint & 1) == 1;
+
+        int before = blockingRanges[attendee];
+        blockingRanges[attendee] += opens ? 1 : -1;
+        if (attendee > 0 && (before == 0) != (blockingRanges[attendee] == 0)) {
+          blockedOptional += opens ? 1 : -1;
+        }
+      }
+
+      int nextPosition =
+          next < endpointsSize ? endpointPosition(endpoints[next]) : startsEnd;
+      if (blockingRanges[0] == 0) {
+        int freeEnd = nextPosition < startsEnd
+            ? nextPosition - 1 + blocking
+            : freeEndOfDay(busyByAttendee, blockingRanges);
+        stretches.add(new int[] {position, nextPosition, blockedOptional, freeEnd});
+        fewestBlocked = Math.min(fewestBlocked, blockedOptional);
+      }
+      position = nextPosition;
+    }
+
+    // Join the neighbouring stretches with the fewest blocked attendees into time slots.
+    int from = -1;
+    int to = -1;
+    int end = -1;
+    for (int[] stretch : stretches) {
+      if (stretch[2] != fewestBlocked) {
+        continue;
+      }
+
+      if (stretch[0] != to) {
+        addStartsAsTimeSlot(timeSlots, from, end);
+        from = stretch[0];
+      }
+      to = stretch[1];
+      end = stretch[3];
+    }
+    addStartsAsTimeSlot(timeSlots, from, end);
+
+    return timeSlots;
+  }
+
+  private int endpointPosition(long endpoint) {
+    return (int) (endpoint >>> 32);
+  }
+
+  /**
+   * Return where the free time that reaches the last possible start ends: at END_OF_DAY if one of
+   * the attendees that are not blocked is busy then, at the end of the day otherwise
+   */
+  private int freeEndOfDay(List<List<TimeRange>> busyByAttendee, int[] blockingRanges) {
+    for (int attendee = 0; attendee < busyByAttendee.size(); attendee++) {
+      if (blockingRanges[attendee] > 0) {
+        continue;
+      }
+      for (TimeRange busy : busyByAttendee.get(attendee)) {
+        if (busy.contains(TimeRange.END_OF_DAY)) {
+          return TimeRange.END_OF_DAY;
+        }
+      }
+    }
+    return TimeRange.WHOLE_DAY.end();
+  }
+
+  /** Add the TimeRange from the first start of a slot to the end of its free time */
+  private void addStartsAsTimeSlot(List<TimeRange> timesList, int from, int end) {
+    if (from >= 0) {
+      timesList.add(TimeRange.fromStartEnd(from, end, false));
+    }
+  }
+
+  /**
+   * Find the free time with one pass over the events. Mandatory and optional attendees get their
+   * own bitmap, the optional one is merged with the mandatory one before looking for free runs.
+   * Zero-minute events split the free time like in the index, and time outside of the day is
+   * ignored, like in {@code findPossibleTimeSlots}. A meeting of no duration also fits in the
+   * empty gaps between back to back events, which a bitmap can't see, so {@code query} leaves it
+   * to the index.
+   */
+  private List<TimeRange> queryBitmap(Collection<Event> events, MeetingRequest request) {
+    AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+    int[] attendees = dictionary.findAll(request.getAttendees());
+    int[] optionalAttendees = dictionary.findAll(request.getOptionalAttendees());
+
+    MinuteBitmap mandatoryBusy = new MinuteBitmap();
+    MinuteBitmap allBusy = new MinuteBitmap();
+    for (Event ev : events) {
+      if (ev.hasAnyAttendee(attendees)) {
+        mandatoryBusy.markBusy(ev.getWhen());
+      } else if (ev.hasAnyAttendee(optionalAttendees)) {
+        allBusy.markBusy(ev.getWhen());
+      }
+    }
+    allBusy.or(mandatoryBusy);
+
+    List<TimeRange> freeSlots = allBusy.findFreeRuns(request.getDuration());
+    if (freeSlots.isEmpty()) {
+      freeSlots = mandatoryBusy.findFreeRuns(request.getDuration());
+    }
+
+    return freeSlots;
+  }
+
   /** 
    * Return a list with TimeRanges that indicates the possible times for a requested meeting 
-   * with n attendees and x duration, avoiding overlapping with their scheduled events
+   * of x duration, avoiding overlapping with the sorted busy ranges of its attendees. Busy time
+   * outside of the day, like multi-day events in minutes since the epoch, is cut off.
    */
-  private List<TimeRange> findPossibleTimeSlots(Collection<Event> sortedEvents, Collection<String> attendees, long duration) {
+  private List<TimeRange> findPossibleTimeSlots(List<TimeRange> busyRanges, long duration) {
     List<TimeRange> timeSlots = new ArrayList<>();
     
     int endTime = 0;
-    for (Event ev : sortedEvents) {
-      if (!Collections.disjoint(ev.getAttendees(), attendees)) {
-        if (ev.getWhen().start() >= endTime) {
-          addTimeSlot(timeSlots, endTime, ev.getWhen().start(), false, duration);
-        }
+    for (TimeRange busy : busyRanges) {
+      if (busy.start() >= TimeRange.WHOLE_DAY.end()) {
+        break;
+      }
 
-        endTime = Math.max(ev.getWhen().end(), endTime);
+      if (busy.start() >= endTime) {
+        addTimeSlot(timeSlots, endTime, busy.start(), false, duration);
       }
+
+      endTime = Math.max(Math.min(busy.end(), TimeRange.WHOLE_DAY.end()), endTime);
     }
 
     addTimeSlot(timeSlots, endTime, TimeRange.END_OF_DAY, true, duration);
@@ -71,6 +306,35 @@ public final class FindMeetingQuery {
     return timeSlots;
   }
 
+  /**
+   * Return the parts of the sorted open ranges, of at least x duration, that don't overlap the
+   * sorted busy ranges. Both lists are walked only once.
+   */
+  private List<TimeRange> findPossibleTimeSlots(
+      List<TimeRange> busyRanges, List<TimeRange> openRanges, long duration) {
+    List<TimeRange> timeSlots = new ArrayList<>();
+
+    int next = 0;
+    for (TimeRange open : openRanges) {
+      // Skip the busy ranges that are over before this open range begins. The busy ranges are
+      // merged, so their ends are sorted too.
+      while (next < busyRanges.size() && busyRanges.get(next).end() <= open.start()) {
+        next++;
+      }
+
+      int freeStart = open.start();
+      for (int i = next; i < busyRanges.size() && busyRanges.get(i).start() < open.end(); i++) {
+        TimeRange busy = busyRanges.get(i);
+        addTimeSlot(timeSlots, freeStart, busy.start(), false, duration);
+        freeStart = Math.max(freeStart, busy.end());
+      }
+
+      addTimeSlot(timeSlots, freeStart, open.end(), false, duration);
+    }
+
+    return timeSlots;
+  }
+
   /** Add a TimeRange to a list if there is room between start and end points */
   private void addTimeSlot(List<TimeRange> timesList, int start, int end, boolean inclusive, long duration) {
     if (start + duration <= end) {
@@ -0,0 +1,167 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Event store that keeps the events in memory. Every event gets an increasing id when it is
+ * added, and cursors are the last id that was read, so paging keeps working while events are
+ * added and removed. The last writes are kept for {@code readChanges}.
+ */
+public final class InMemoryEventStore implements EventStore {
+  private static final int KEPT_CHANGES = 1000;
+
+  private final NavigableMap<Long, Event> events = new TreeMap<>();
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+  // The last writes, oldest first.
+  private final Deque<Change> changes = new ArrayDeque<>();
+  private long nextId = 0;
+  private long version = 0;
+
+  /**
+   * Creates an empty store.
+   */
+  public InMemoryEventStore() {}
+
+  /**
+   * Creates a store with the {@code events}.
+   */
+  public InMemoryEventStore(Collection<Event> events) {
+    for (Event event : events) {
+      add(event);
+    }
+  }
+
+  @Override
+  public void add(Event event) {
+    // Listeners are told while holding the lock, so they hear about the writes in order.
+    synchronized (events) {
+      events.put(nextId++, event);
+      addChange(new Change(event, true));
+
+      for (Listener listener : listeners) {
+        listener.eventAdded(event);
+      }
+    }
+  }
+
+  @Override
+  public boolean remove(Event event) {
+    synchronized (events) {
+      Iterator<Event> iterator = events.values().iterator();
+      while (iterator.hasNext()) {
+        if (iterator.next().equals(event)) {
+          iterator.remove();
+          addChange(new Change(event, false));
+
+          for (Listener listener : listeners) {
+            listener.eventRemoved(event);
+          }
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public Page getPage(String cursor, int limit) {
+    List<Event> page = new ArrayList<>();
+    long lastId = -1;
+    boolean hasMore = false;
+
+    synchronized (events) {
+      Map<Long, Event> tail = cursor == null
+          ? events : events.tailMap(Long.parseLong(cursor), false);
+      for (Map.Entry<Long, Event> entry : tail.entrySet()) {
+        if (page.size() == limit) {
+          hasMore = true;
+          break;
+        }
+        page.add(entry.getValue());
+        lastId = entry.getKey();
+      }
+    }
+
+    return new Page(page, hasMore ? Long.toString(lastId) : null);
+  }
+
+  @Override
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  @Override
+  public Version getVersion() {
+    synchronized (events) {
+      return new Version(version);
+    }
+  }
+
+  @Override
+  public Version readChanges(Version since, Listener listener) {
+    synchronized (events) {
+      long missed = since.getParts() == 1 ? version - since.getWrites(0) : -1;
+      if (missed < 0 || missed > changes.size()) {
+        return null;
+      }
+
+      Iterator<Change> newest = changes.descendingIterator();
+      Deque<Change> replayed = new ArrayDeque<>();
+      for (long i = 0; i < missed; i++) {
+        replayed.addFirst(newest.next());
+      }
+      for (Change change : replayed) {
+        if (change.added) {
+          listener.eventAdded(change.event);
+        } else {
+          listener.eventRemoved(change.event);
+        }
+      }
+      return new Version(version);
+    }
+  }
+
+  /** Count a write and keep it for readChanges, called with the lock held */
+  private void addChange(Change change) {
+    version++;
+    changes.addLast(change);
+    if (changes.size() > KEPT_CHANGES) {
+      changes.removeFirst();
+    }
+  }
+
+  /**
+   * An event that was added or removed.
+   */
+  private static final class Change {
+    private final Event event;
+    private final boolean added;
+
+    Change(Event event, boolean added) {
+      this.event = event;
+      this.added = added;
+    }
+  }
+}
@@ -73,4 +73,14 @@ public final class MeetingRequest {
   public long getDuration() {
     return duration;
   }
+
+  /**
+   * Returns true if the request can be answered. A request read from JSON can be missing its
+   * lists of attendees, have null names or a negative duration.
+   */
+  public boolean isValid() {
+    return attendees != null && !attendees.contains(null)
+        && optional_attendees != null && !optional_attendees.contains(null)
+        && duration >= 0;
+  }
 }
@@ -0,0 +1,177 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Free/busy map of a single day with one bit per minute. A set bit means that someone is busy
+ * during that minute. The whole day fits in 23 longs, so merging the busy time of a group and
+ * looking for free runs works on whole words instead of on {@code TimeRange} objects.
+ */
+public final class MinuteBitmap {
+  public static final int MINUTES_PER_DAY = TimeRange.WHOLE_DAY.duration();
+
+  private static final int WORDS = (MINUTES_PER_DAY + Long.SIZE - 1) / Long.SIZE;
+
+  private final long[] words = new long[WORDS];
+
+  // Minutes where a zero-minute event starts. They keep nobody busy but split a free run in two,
+  // like they do in FindMeetingQuery.query.
+  private final long[] splits = new long[WORDS];
+
+  /**
+   * Marks the minutes of {@code range} as busy. Minutes outside of the day are ignored, a range of
+   * no minutes splits the free run it falls in.
+   */
+  public void markBusy(TimeRange range) {
+    if (range.duration() == 0) {
+      markSplit(range.start());
+      return;
+    }
+    markBusy(range.start(), range.end());
+  }
+
+  /**
+   * Splits the free run that {@code minute} falls in, so one run ends and another one starts
+   * there. Minutes outside of the day are ignored.
+   */
+  public void markSplit(int minute) {
+    if (minute > 0 && minute < MINUTES_PER_DAY) {
+      splits[minute >>> 6] |= 1L << minute;
+    }
+  }
+
+  /**
+   * Marks the minutes from {@code start} (inclusive) to {@code end} (exclusive) as busy.
+   */
+  public void markBusy(int start, int end) {
+    start = Math.max(start, 0);
+    end = Math.min(end, MINUTES_PER_DAY);
+    if (start >= end) {
+      return;
+    }
+
+    int firstWord = start >>> 6;
+    int lastWord = (end - 1) >>> 6;
+
+    // Shifts only use the lower 6 bits, so these are the bits from start and up to end - 1 inside
+    // their own word.
+    long firstMask = -1L << start;
+    long lastMask = -1L >>> -end;
+
+    if (firstWord == lastWord) {
+      words[firstWord] |= firstMask & lastMask;
+      return;
+    }
+
+    words[firstWord] |= firstMask;
+    for (int i = firstWord + 1; i < lastWord; i++) {
+      words[i] = -1L;
+    }
+    words[lastWord] |= lastMask;
+  }
+
+  /**
+   * Adds the busy minutes of {@code other} to this bitmap.
+   */
+  public void or(MinuteBitmap other) {
+    for (int i = 0; i < WORDS; i++) {
+      words[i] |= other.words[i];
+      splits[i] |= other.splits[i];
+    }
+  }
+
+  /**
+   * Marks every minute of the day as free again.
+   */
+  public void clear() {
+    for (int i = 0; i < WORDS; i++) {
+      words[i] = 0L;
+      splits[i] = 0L;
+    }
+  }
+
+  /**
+   * Returns true if the minute is busy.
+   */
+  public boolean isBusy(int minute) {
+    return (words[minute >>> 6] & (1L << minute)) != 0;
+  }
+
+  /**
+   * Returns the free runs of the day that last at least {@code duration} minutes, in order. Like
+   * {@code FindMeetingQuery.query}, a run that reaches the end of the day only counts up to
+   * {@code TimeRange.END_OF_DAY}, so it has to be one minute longer than the meeting. Splits
+   * inside of a run cut it in two, splits next to busy minutes change nothing.
+   */
+  public List<TimeRange> findFreeRuns(long duration) {
+    List<TimeRange> freeRuns = new ArrayList<>();
+
+    int start = nextFree(0);
+    while (start < MINUTES_PER_DAY) {
+      int end = Math.min(nextBusy(start), nextSet(splits, start + 1));
+      int usableEnd = end == MINUTES_PER_DAY ? TimeRange.END_OF_DAY : end;
+      if (start + duration <= usableEnd) {
+        freeRuns.add(TimeRange.fromStartEnd(start, end, false));
+      }
+      start = nextFree(end);
+    }
+
+    return freeRuns;
+  }
+
+  /** Return the first free minute at or after {@code from}, or the end of the day */
+  private int nextFree(int from) {
+    if (from >= MINUTES_PER_DAY) {
+      return MINUTES_PER_DAY;
+    }
+
+    int index = from >>> 6;
+    long word = ~words[index] & (-1L << from);
+    while (word == 0) {
+      if (++index == WORDS) {
+        return MINUTES_PER_DAY;
+      }
+      word = ~words[index];
+    }
+
+    return Math.min(index * Long.SIZE + Long.numberOfTrailingZeros(word), MINUTES_PER_DAY);
+  }
+
+  /** Return the first busy minute at or after {@code from}, or the end of the day */
+  private int nextBusy(int from) {
+    return nextSet(words, from);
+  }
+
+  /** Return the first set bit of {@code bits} at or after {@code from}, or the end of the day */
+  private static int nextSet(long[] bits, int from) {
+    if (from >= MINUTES_PER_DAY) {
+      return MINUTES_PER_DAY;
+    }
+
+    int index = from >>> 6;
+    long word = bits[index] & (-1L << from);
+    while (word == 0) {
+      if (++index == WORDS) {
+        return MINUTES_PER_DAY;
+      }
+      word = bits[index];
+    }
+
+    return Math.min(index * Long.SIZE + Long.numberOfTrailingZeros(word), MINUTES_PER_DAY);
+  }
+}
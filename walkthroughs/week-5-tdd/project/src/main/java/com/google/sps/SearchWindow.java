@@ -0,0 +1,135 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A span of days to search for meetings in, with the hours of each day that can be used. Times
+ * are minutes since the epoch, see {@code TimeRange.fromInstants}. The usable hours of every day
+ * are worked out once, in the time zone of the window, when the window is created. A query then
+ * walks all the days in a single pass, and a window can be reused for many queries.
+ */
+public final class SearchWindow {
+  /** The longest window that can be searched, about a month. */
+  public static final int MAX_DAYS = 31;
+
+  private final LocalDate firstDay;
+  private final int days;
+  private final ZoneId zone;
+  private final List<TimeRange> openRanges;
+
+  /**
+   * Creates a window of {@code days} whole days starting on {@code firstDay}. Meetings can run
+   * past midnight.
+   */
+  public SearchWindow(LocalDate firstDay, int days, ZoneId zone) {
+    this(firstDay, days, zone, LocalTime.MIDNIGHT, LocalTime.MIDNIGHT,
+        EnumSet.allOf(DayOfWeek.class));
+  }
+
+  /**
+   * Creates a window of {@code days} days starting on {@code firstDay} where only the time from
+   * {@code workdayStart} to {@code workdayEnd} of the {@code workingDays} can be used. A
+   * {@code workdayEnd} of midnight means the end of the day.
+   */
+  public SearchWindow(LocalDate firstDay, int days, ZoneId zone, LocalTime workdayStart,
+      LocalTime workdayEnd, Collection<DayOfWeek> workingDays) {
+    if (firstDay == null || zone == null || workdayStart == null || workdayEnd == null
+        || workingDays == null) {
+      throw new IllegalArgumentException("arguments cannot be null");
+    }
+
+    if (days < 1 || days > MAX_DAYS) {
+      throw new IllegalArgumentException("days can only be 1 through " + MAX_DAYS + ".");
+    }
+
+    if (!workdayEnd.equals(LocalTime.MIDNIGHT) && !workdayEnd.isAfter(workdayStart)) {
+      throw new IllegalArgumentException("workdayEnd must come after workdayStart.");
+    }
+
+    this.firstDay = firstDay;
+    this.days = days;
+    this.zone = zone;
+    this.openRanges = Collections.unmodifiableList(
+        buildOpenRanges(firstDay, days, zone, workdayStart, workdayEnd, workingDays));
+  }
+
+  /**
+   * Returns the first day of the window.
+   */
+  public LocalDate getFirstDay() {
+    return firstDay;
+  }
+
+  /**
+   * Returns the number of days in the window.
+   */
+  public int getDays() {
+    return days;
+  }
+
+  /**
+   * Returns the time zone used to find where each day starts.
+   */
+  public ZoneId getZone() {
+    return zone;
+  }
+
+  /**
+   * Returns the times that can be used for meetings, sorted and in minutes since the epoch. Usable
+   * hours of consecutive days that touch each other are joined into one range.
+   */
+  public List<TimeRange> getOpenRanges() {
+    return openRanges;
+  }
+
+  /** Return the usable hours of every working day, joining the ones that touch */
+  private static List<TimeRange> buildOpenRanges(LocalDate firstDay, int days, ZoneId zone,
+      LocalTime workdayStart, LocalTime workdayEnd, Collection<DayOfWeek> workingDays) {
+    Set<DayOfWeek> workingDaySet = workingDays.isEmpty()
+        ? EnumSet.noneOf(DayOfWeek.class) : EnumSet.copyOf(workingDays);
+    List<TimeRange> openRanges = new ArrayList<>();
+
+    for (int i = 0; i < days; i++) {
+      LocalDate day = firstDay.plusDays(i);
+      if (!workingDaySet.contains(day.getDayOfWeek())) {
+        continue;
+      }
+
+      // Going through ZonedDateTime takes care of days that are longer or shorter because of
+      // daylight saving time.
+      int start = TimeRange.toEpochMinute(day.atTime(workdayStart).atZone(zone).toInstant());
+      LocalDate endDay = workdayEnd.equals(LocalTime.MIDNIGHT) ? day.plusDays(1) : day;
+      int end = TimeRange.toEpochMinute(endDay.atTime(workdayEnd).atZone(zone).toInstant());
+
+      int last = openRanges.size() - 1;
+      if (last >= 0 && openRanges.get(last).end() == start) {
+        start = openRanges.remove(last).start();
+      }
+      openRanges.add(TimeRange.fromStartEnd(start, end, false));
+    }
+
+    return openRanges;
+  }
+}
@@ -14,6 +14,7 @@
 
 package com.google.sps;
 
+import java.time.Instant;
 import java.util.Comparator;
 
 /**
@@ -183,4 +184,30 @@ public final class TimeRange {
   public static TimeRange fromStartDuration(int start, int duration) {
     return new TimeRange(start, duration);
   }
+
+  /**
+   * Creates a {@code TimeRange} from {@code start} to {@code end} measured in minutes since the
+   * epoch (1970-01-01T00:00Z). Ranges like this can span many days, and an {@code int} of minutes
+   * reaches well past the year 6000. Seconds are rounded outwards, so the range covers both
+   * instants.
+   */
+  public static TimeRange fromInstants(Instant start, Instant end) {
+    int startMinute = toEpochMinute(start);
+    int endMinute = toEpochMinute(end.plusSeconds(59));
+    return new TimeRange(startMinute, endMinute - startMinute);
+  }
+
+  /**
+   * Returns the whole minutes between the epoch and {@code instant}.
+   */
+  public static int toEpochMinute(Instant instant) {
+    return Math.toIntExact(Math.floorDiv(instant.getEpochSecond(), 60));
+  }
+
+  /**
+   * Returns the instant that is {@code epochMinute} minutes after the epoch.
+   */
+  public static Instant toInstant(int epochMinute) {
+    return Instant.ofEpochSecond(epochMinute * 60L);
+  }
 }
@@ -0,0 +1,114 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.servlets;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.EventIndex;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet that answers many meeting requests at once. The requests are evaluated in parallel
+ * against the shared event index and the answers are written back in the order of the requests.
+ * The whole batch is checked and answered before anything is written, so a bad request gets a
+ * 400 instead of a cut off array.
+ */
+@WebServlet("/batch-query")
+public class BatchQueryServlet extends HttpServlet {
+  private static final int MAX_BATCH_SIZE = 1000;
+  private static final Type TIME_RANGES_TYPE = new TypeToken<Collection<TimeRange>>() {}.getType();
+
+  private ForkJoinPool pool;
+
+  @Override
+  public void init() {
+    pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+  }
+
+  @Override
+  public void destroy() {
+    pool.shutdown();
+  }
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Gson gson = new Gson();
+
+    // Convert the JSON array to instances of MeetingRequest.
+    MeetingRequest[] meetingRequests;
+    try {
+      meetingRequests = gson.fromJson(request.getReader(), MeetingRequest[].class);
+    } catch (JsonParseException ex) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+
+    if (meetingRequests == null || meetingRequests.length > MAX_BATCH_SIZE
+        || !Arrays.stream(meetingRequests).allMatch(r -> r != null && r.isValid())) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+
+    // With ?maximizeOptional=true, keep the slots that fit the most optional attendees.
+    boolean maximizeOptional = Boolean.parseBoolean(request.getParameter("maximizeOptional"));
+    FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
+    EventIndex index = SchedulerContextListener.getEventIndex(getServletContext());
+
+    // Find the possible meeting times of every request in parallel.
+    List<ForkJoinTask<Collection<TimeRange>>> answers = new ArrayList<>();
+    for (MeetingRequest meetingRequest : meetingRequests) {
+      answers.add(pool.submit(() -> maximizeOptional
+          ? findMeetingQuery.queryMaximizingOptionalAttendees(index, meetingRequest)
+          : findMeetingQuery.query(index, meetingRequest)));
+    }
+
+    List<Collection<TimeRange>> results = new ArrayList<>();
+    try {
+      for (ForkJoinTask<Collection<TimeRange>> answer : answers) {
+        results.add(answer.join());
+      }
+    } catch (RuntimeException ex) {
+      // A request the checks above let through but the query can't answer.
+      answers.forEach(answer -> answer.cancel(false));
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+
+    // Send the answers back as a JSON array of arrays of times.
+    response.setContentType("application/json");
+    JsonWriter writer = new JsonWriter(response.getWriter());
+    writer.beginArray();
+    for (Collection<TimeRange> result : results) {
+      gson.toJson(result, TIME_RANGES_TYPE, writer);
+    }
+    writer.endArray();
+    writer.flush();
+  }
+}
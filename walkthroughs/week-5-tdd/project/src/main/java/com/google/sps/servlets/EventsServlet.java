@@ -0,0 +1,90 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.servlets;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.sps.Event;
+import com.google.sps.TimeRange;
+import java.io.IOException;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet that adds events to the calendar with POST and removes them with DELETE. Both take an
+ * event in the same JSON format that {@code /get-events} returns.
+ */
+@WebServlet("/events")
+public class EventsServlet extends HttpServlet {
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Event event = readEvent(request);
+    if (event == null) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+
+    SchedulerContextListener.getEventStore(getServletContext()).add(event);
+    response.setStatus(HttpServletResponse.SC_CREATED);
+  }
+
+  @Override
+  public void doDelete(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    Event event = readEvent(request);
+    if (event == null) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+
+    if (!SchedulerContextListener.getEventStore(getServletContext()).remove(event)) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+    }
+  }
+
+  /**
+   * Return the event in the body of the request, or null if it isn't a valid event
+   */
+  private Event readEvent(HttpServletRequest request) throws IOException {
+    EventJson json;
+    try {
+      json = new Gson().fromJson(request.getReader(), EventJson.class);
+    } catch (JsonParseException ex) {
+      return null;
+    }
+
+    if (json == null || json.title == null || json.when == null || json.attendees == null) {
+      return null;
+    }
+
+    return new Event(json.title,
+        TimeRange.fromStartDuration(json.when.start, json.when.duration), json.attendees);
+  }
+
+  /** The JSON form of an event. */
+  private static final class EventJson {
+    private String title;
+    private TimeJson when;
+    private List<String> attendees;
+  }
+
+  /** The JSON form of a time range. */
+  private static final class TimeJson {
+    private int start;
+    private int duration;
+  }
+}
@@ -11,26 +11,132 @@
 // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
 // See the License for the specific language governing permissions and
 // limitations under the License.
-
 package com.google.sps.servlets;
 
-import com.google.sps.Events;
+import com.google.sps.Event;
+import com.google.sps.EventStore;
+import com.google.sps.TimeRange;
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+/**
+ * Servlet that returns the events of the calendar as a JSON array. The events are written while
+ * they are read from the store, one page at a time, so a request never holds the whole calendar.
+ *
+ * <p>Optional parameters:
+ * <ul>
+ *   <li>{@code limit} and {@code cursor}: return a single page of at most {@code limit} events,
+ *       starting at {@code cursor}. The cursor of the next page is sent in the
+ *       {@code X-Next-Cursor} header, which is missing on the last page.
+ *   <li>{@code start} and {@code end}: only return events that overlap this time, in minutes.
+ * </ul>
+ */
 @WebServlet("/get-events")
 public class GetEventsServlet extends HttpServlet {
+  private static final int MAX_LIMIT = 1000;
+
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    Gson gson = new Gson();
-    String jsonResponse = gson.toJson(Events.events);
+    Integer limit;
+    Integer start;
+    Integer end;
+    try {
+      limit = getIntParameter(request, "limit");
+      start = getIntParameter(request, "start");
+      end = getIntParameter(request, "end");
+    } catch (NumberFormatException ex) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+
+    if ((limit != null && (limit < 1 || limit > MAX_LIMIT))
+        || (start != null && end != null && start > end)) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+    TimeRange window = start == null && end == null ? null : TimeRange.fromStartEnd(
+        start == null ? Integer.MIN_VALUE / 2 : start,
+        end == null ? Integer.MAX_VALUE / 2 : end, false);
+
+    EventStore store = SchedulerContextListener.getEventStore(getServletContext());
+    String cursor = request.getParameter("cursor");
+
+    // The first page is read before writing anything, so a bad cursor gets an error and the
+    // cursor of a single page can go in a header.
+    EventStore.Page page;
+    try {
+      page = store.getPage(cursor, limit != null ? limit : EventStore.DEFAULT_PAGE_SIZE);
+    } catch (IllegalArgumentException ex) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+    if (limit != null && page.getNextCursor() != null) {
+      response.setHeader("X-Next-Cursor", page.getNextCursor());
+    }
 
-    // Send the JSON back as the response
     response.setContentType("application/json");
-    response.getWriter().println(jsonResponse);
+    response.setCharacterEncoding("UTF-8");
+    try (JsonWriter writer = new JsonWriter(openWriter(request, response))) {
+      Gson gson = new Gson();
+      writer.beginArray();
+      while (true) {
+        for (Event event : page.getEvents()) {
+          writeEvent(gson, writer, event, window);
+        }
+
+        cursor = page.getNextCursor();
+        if (limit != null || cursor == null) {
+          break;
+        }
+        page = store.getPage(cursor, EventStore.DEFAULT_PAGE_SIZE);
+      }
+      writer.endArray();
+    }
+  }
+
+  /**
+   * Write an event if it overlaps the window, or always when there is no window
+   */
+  private void writeEvent(Gson gson, JsonWriter writer, Event event, TimeRange window) {
+    if (window == null || window.overlaps(event.getWhen())) {
+      gson.toJson(event, Event.class, writer);
+    }
+  }
+
+  /**
+   * Return a writer for the body, compressed with gzip if the client accepts it
+   */
+  private Writer openWriter(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    response.setHeader("Vary", "Accept-Encoding");
+
+    String acceptEncoding = request.getHeader("Accept-Encoding");
+    if (acceptEncoding == null || !acceptEncoding.contains("gzip")) {
+      return response.getWriter();
+    }
+
+    response.setHeader("Content-Encoding", "gzip");
+    return new OutputStreamWriter(
+        new GZIPOutputStream(response.getOutputStream()), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Return the parameter as an integer, or null if it was not specified by the client
+   */
+  private Integer getIntParameter(HttpServletRequest request, String name) {
+    String value = request.getParameter(name);
+    if (value == null || value.isEmpty()) {
+      return null;
+    }
+    return Integer.parseInt(value);
   }
 }
@@ -14,13 +14,12 @@
 
 package com.google.sps.servlets;
 
-import com.google.sps.Events;
+import com.google.sps.EventIndex;
 import com.google.sps.FindMeetingQuery;
 import com.google.sps.MeetingRequest;
 import com.google.sps.TimeRange;
 import com.google.gson.Gson;
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Collection;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -37,9 +36,13 @@ public class QueryServlet extends HttpServlet {
     MeetingRequest meetingRequest = gson.fromJson(request.getReader(), MeetingRequest.class);
 
     // Find the possible meeting times.
+    // With ?maximizeOptional=true, keep the slots that fit the most optional attendees.
+    boolean maximizeOptional = Boolean.parseBoolean(request.getParameter("maximizeOptional"));
     FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
-    Collection<TimeRange> answer =
-        findMeetingQuery.query(Arrays.asList(Events.events), meetingRequest);
+    EventIndex index = SchedulerContextListener.getEventIndex(getServletContext());
+    Collection<TimeRange> answer = maximizeOptional
+        ? findMeetingQuery.queryMaximizingOptionalAttendees(index, meetingRequest)
+        : findMeetingQuery.query(index, meetingRequest);
 
     // Convert the times to JSON
     String jsonResponse = gson.toJson(answer);
@@ -0,0 +1,152 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.servlets;
+
+import com.google.sps.DatastoreEventStore;
+import com.google.sps.Event;
+import com.google.sps.EventIndex;
+import com.google.sps.EventStore;
+import com.google.sps.Events;
+import com.google.sps.InMemoryEventStore;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Opens the event store and builds the event index once when the app starts, so the servlets
+ * share them instead of loading the calendar on every request. The index catches up with the
+ * writes of every instance of the app by replaying the changes of the store, at most once a
+ * second and right after a write made here. The store is picked with the
+ * {@code calendar.eventStore} system property.
+ */
+@WebListener
+public class SchedulerContextListener implements ServletContextListener {
+  private static final String EVENT_STORE_ATTRIBUTE = "com.google.sps.EventStore";
+  private static final String EVENT_INDEX_ATTRIBUTE = "com.google.sps.EventIndex";
+
+  @Override
+  public void contextInitialized(ServletContextEvent sce) {
+    EventStore store = "datastore".equals(System.getProperty("calendar.eventStore"))
+        ? new DatastoreEventStore()
+        : new InMemoryEventStore(Arrays.asList(Events.events));
+
+    // Load the calendar one page at a time, then follow the writes.
+    StoreIndex index = new StoreIndex(store);
+    index.get();
+    store.addListener(index);
+
+    ServletContext context = sce.getServletContext();
+    context.setAttribute(EVENT_STORE_ATTRIBUTE, store);
+    context.setAttribute(EVENT_INDEX_ATTRIBUTE, index);
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent sce) {
+    sce.getServletContext().removeAttribute(EVENT_INDEX_ATTRIBUTE);
+    sce.getServletContext().removeAttribute(EVENT_STORE_ATTRIBUTE);
+  }
+
+  /**
+   * Returns the event store shared by the whole app.
+   */
+  static EventStore getEventStore(ServletContext context) {
+    return (EventStore) context.getAttribute(EVENT_STORE_ATTRIBUTE);
+  }
+
+  /**
+   * Returns the event index shared by the whole app, up to date with the writes made by every
+   * instance.
+   */
+  static EventIndex getEventIndex(ServletContext context) {
+    return ((StoreIndex) context.getAttribute(EVENT_INDEX_ATTRIBUTE)).get();
+  }
+
+  /**
+   * The index of a store and the version of the store it matches. The changes of the store are
+   * replayed into the index when it's used, if the last check is older than
+   * {@code CHECK_INTERVAL_NANOS} or a write was heard since. The whole store is only read again
+   * when it no longer has the changes the index missed.
+   */
+  private static final class StoreIndex implements EventStore.Listener {
+    private static final long CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final EventStore store;
+    private final EventStore.Listener applyChange;
+    private EventIndex index = new EventIndex();
+    // Null when the index has to be loaded from the whole store.
+    private EventStore.Version version = null;
+    private long lastCheck;
+    private boolean wroteHere = false;
+
+    StoreIndex(EventStore store) {
+      this.store = store;
+      this.applyChange = new EventStore.Listener() {
+        @Override
+        public void eventAdded(Event event) {
+          index.add(event);
+        }
+
+        @Override
+        public void eventRemoved(Event event) {
+          index.remove(event);
+        }
+      };
+    }
+
+    /** Return the index, catching up with the store first if it's time to check it */
+    synchronized EventIndex get() {
+      long now = System.nanoTime();
+      if (version != null && !wroteHere && now - lastCheck < CHECK_INTERVAL_NANOS) {
+        return index;
+      }
+      lastCheck = now;
+      wroteHere = false;
+
+      if (version != null) {
+        version = store.readChanges(version, applyChange);
+      }
+      if (version == null) {
+        load();
+      }
+      return index;
+    }
+
+    /** Read the whole store into a new index */
+    private void load() {
+      EventStore.Version before = store.getVersion();
+      EventIndex loaded = new EventIndex();
+      store.forEach(loaded::add);
+      EventStore.Version after = store.getVersion();
+
+      index = loaded;
+      // A write during the load may or may not be in it, load it again on the next check.
+      version = before.equals(after) ? before : null;
+    }
+
+    // The writes made here are replayed with the other changes, so they are only noted.
+
+    @Override
+    public synchronized void eventAdded(Event event) {
+      wroteHere = true;
+    }
+
+    @Override
+    public synchronized void eventRemoved(Event event) {
+      wroteHere = true;
+    }
+  }
+}
@@ -0,0 +1,112 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps;
+
+import com.google.gson.Gson;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class AttendeeDictionaryTest {
+  private static final String PERSON_A = "Dictionary Person A";
+  private static final String PERSON_B = "Dictionary Person B";
+  private static final String PERSON_C = "Dictionary Person C";
+  private static final String NOBODY = "Dictionary Nobody";
+
+  private final AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+
+  @Test
+  public void sameNameSameId() {
+    AttendeeDictionary.Attendee attendee = dictionary.intern(PERSON_A);
+
+    Assert.assertSame(attendee, dictionary.intern(PERSON_A));
+    Assert.assertEquals(attendee.getId(), dictionary.find(PERSON_A));
+    Assert.assertEquals(PERSON_A, attendee.getName());
+  }
+
+  @Test
+  public void internAllIsSortedWithoutRepetitions() {
+    AttendeeDictionary.Attendee[] attendees =
+        dictionary.internAll(Arrays.asList(PERSON_B, PERSON_A, PERSON_B));
+    int[] ids = AttendeeDictionary.idsOf(attendees);
+
+    Assert.assertEquals(2, ids.length);
+    Assert.assertTrue(ids[0] < ids[1]);
+  }
+
+  @Test
+  public void findAllSkipsUnknownNames() {
+    AttendeeDictionary.Attendee attendee = dictionary.intern(PERSON_A);
+    int[] ids = dictionary.findAll(Arrays.asList(PERSON_A, NOBODY));
+
+    Assert.assertArrayEquals(new int[] {attendee.getId()}, ids);
+    Assert.assertEquals(-1, dictionary.find(NOBODY));
+  }
+
+  @Test
+  public void namesAreForgottenWithTheirEvents() throws InterruptedException {
+    String name = "Dictionary Person Gone";
+    Event event = new Event("Event 1", TimeRange.WHOLE_DAY, Collections.singletonList(name));
+    int id = dictionary.find(name);
+    Assert.assertTrue(id >= 0);
+    Assert.assertTrue(event.getAttendees().contains(name));
+
+    event = null;
+    for (int i = 0; i < 100 && dictionary.find(name) >= 0; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+
+    Assert.assertEquals(-1, dictionary.find(name));
+    // Ids are not reused, the name gets a new one.
+    Assert.assertNotEquals(id, dictionary.intern(name).getId());
+  }
+
+  @Test
+  public void intersects() {
+    Assert.assertTrue(AttendeeDictionary.intersects(new int[] {1, 4, 9}, new int[] {2, 9}));
+    Assert.assertFalse(AttendeeDictionary.intersects(new int[] {1, 4, 9}, new int[] {2, 8}));
+    Assert.assertFalse(AttendeeDictionary.intersects(new int[] {}, new int[] {2, 8}));
+  }
+
+  @Test
+  public void eventAttendeesActLikeASet() {
+    Event event = new Event("Event 1", TimeRange.WHOLE_DAY, Arrays.asList(PERSON_A, PERSON_B));
+
+    Assert.assertEquals(
+        new HashSet<>(Arrays.asList(PERSON_A, PERSON_B)), event.getAttendees());
+    Assert.assertTrue(event.getAttendees().contains(PERSON_B));
+    Assert.assertFalse(event.getAttendees().contains(PERSON_C));
+    Assert.assertTrue(event.hasAnyAttendee(dictionary.findAll(Arrays.asList(PERSON_B, NOBODY))));
+    Assert.assertFalse(event.hasAnyAttendee(dictionary.findAll(Collections.singleton(NOBODY))));
+  }
+
+  @Test
+  public void eventIsSerializedWithAttendeeNames() {
+    Event event = new Event("Event 1", TimeRange.fromStartDuration(0, 30),
+        Collections.singletonList(PERSON_A));
+
+    String actual = new Gson().toJson(event);
+    String expected = "{\"title\":\"Event 1\",\"when\":{\"start\":0,\"duration\":30},"
+        + "\"attendees\":[\"" + PERSON_A + "\"]}";
+
+    Assert.assertEquals(expected, actual);
+  }
+}
@@ -0,0 +1,236 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps;
+
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class DatastoreEventStoreTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+
+  private final LocalServiceTestHelper helper =
+      new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+
+  private DatastoreEventStore store;
+
+  @Before
+  public void setUp() {
+    helper.setUp();
+    store = new DatastoreEventStore();
+  }
+
+  @After
+  public void tearDown() {
+    helper.tearDown();
+  }
+
+  @Test
+  public void addedEventsAreReadBack() {
+    Event event = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+        Arrays.asList(PERSON_A, PERSON_B));
+    Event noAttendees = new Event("Event 2",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES), Collections.emptyList());
+    store.add(event);
+    store.add(noAttendees);
+
+    List<Event> actual = new ArrayList<>();
+    store.forEach(actual::add);
+
+    // Events are read in key order, which groups them by shard.
+    Assert.assertEquals(2, actual.size());
+    Assert.assertEquals(new HashSet<>(Arrays.asList(event, noAttendees)), new HashSet<>(actual));
+  }
+
+  @Test
+  public void pagesFollowTheCursor() {
+    List<Event> expected = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      Event event = new Event("Event " + i,
+          TimeRange.fromStartDuration(TIME_0800AM + i, DURATION_30_MINUTES),
+          Arrays.asList(PERSON_A));
+      store.add(event);
+      expected.add(event);
+    }
+
+    List<Event> actual = new ArrayList<>();
+    int pages = 0;
+    String cursor = null;
+    do {
+      EventStore.Page page = store.getPage(cursor, 2);
+      actual.addAll(page.getEvents());
+      cursor = page.getNextCursor();
+      pages++;
+    } while (cursor != null);
+
+    List<Event> again = new ArrayList<>();
+    store.forEach(again::add);
+
+    Assert.assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+    Assert.assertEquals(again, actual);
+    Assert.assertEquals(3, pages);
+  }
+
+  @Test
+  public void removeOnlyMatchesEqualEvents() {
+    Event event = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A));
+    Event otherAttendees = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_B));
+    store.add(event);
+
+    Assert.assertFalse(store.remove(otherAttendees));
+    Assert.assertTrue(store.remove(event));
+    Assert.assertTrue(store.getPage(null, 10).getEvents().isEmpty());
+  }
+
+  @Test
+  public void indexFollowsWrites() {
+    EventIndex index = new EventIndex();
+    store.addListener(new EventStore.Listener() {
+      @Override
+      public void eventAdded(Event event) {
+        index.add(event);
+      }
+
+      @Override
+      public void eventRemoved(Event event) {
+        index.remove(event);
+      }
+    });
+
+    Event event = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A));
+    store.add(event);
+
+    Assert.assertEquals(Arrays.asList(event.getWhen()),
+        index.getBusyRanges(Arrays.asList(PERSON_A)));
+
+    store.remove(event);
+
+    Assert.assertTrue(index.getBusyRanges(Arrays.asList(PERSON_A)).isEmpty());
+  }
+
+  @Test
+  public void removeFindsAnEventThatWasJustAdded() {
+    // Queries outside of an entity group see none of the new entities.
+    helper.tearDown();
+    LocalServiceTestHelper eventualHelper = new LocalServiceTestHelper(
+        new LocalDatastoreServiceTestConfig().setDefaultHighRepJobPolicyUnappliedJobPercentage(100));
+    eventualHelper.setUp();
+    try {
+      DatastoreEventStore eventualStore = new DatastoreEventStore();
+      Event event = new Event("Event 1",
+          TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A));
+      eventualStore.add(event);
+
+      Assert.assertTrue(eventualStore.remove(event));
+      Assert.assertFalse(eventualStore.remove(event));
+    } finally {
+      eventualHelper.tearDown();
+      helper.setUp();
+    }
+  }
+
+  @Test
+  public void versionMovesWithWritesFromEveryInstance() {
+    DatastoreEventStore otherInstance = new DatastoreEventStore();
+    Event event = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A));
+
+    EventStore.Version empty = store.getVersion();
+    otherInstance.add(event);
+    EventStore.Version added = store.getVersion();
+    Assert.assertNotEquals(empty, added);
+    Assert.assertTrue(otherInstance.remove(event));
+    Assert.assertNotEquals(added, store.getVersion());
+    Assert.assertFalse(otherInstance.remove(event));
+    Assert.assertEquals(otherInstance.getVersion(), store.getVersion());
+  }
+
+  @Test
+  public void otherInstancesReplayTheChanges() {
+    DatastoreEventStore otherInstance = new DatastoreEventStore();
+    Event removed = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A));
+    Event kept = new Event("Event 2",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A));
+
+    EventStore.Version before = store.getVersion();
+    otherInstance.add(removed);
+    otherInstance.add(kept);
+    Assert.assertTrue(otherInstance.remove(removed));
+
+    EventIndex index = new EventIndex();
+    EventStore.Version after = store.readChanges(before, new EventStore.Listener() {
+      @Override
+      public void eventAdded(Event event) {
+        index.add(event);
+      }
+
+      @Override
+      public void eventRemoved(Event event) {
+        Assert.assertTrue(index.remove(event));
+      }
+    });
+
+    Assert.assertEquals(store.getVersion(), after);
+    Assert.assertNotEquals(before, after);
+    Assert.assertEquals(Arrays.asList(kept.getWhen()),
+        index.getBusyRanges(Arrays.asList(PERSON_A)));
+  }
+
+  @Test
+  public void nothingToReplayWhenUpToDate() {
+    store.add(new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A)));
+    EventStore.Version version = store.getVersion();
+    List<Event> replayed = new ArrayList<>();
+
+    EventStore.Version after = store.readChanges(version, new EventStore.Listener() {
+      @Override
+      public void eventAdded(Event event) {
+        replayed.add(event);
+      }
+
+      @Override
+      public void eventRemoved(Event event) {
+        replayed.add(event);
+      }
+    });
+
+    Assert.assertEquals(version, after);
+    Assert.assertTrue(replayed.isEmpty());
+    Assert.assertNull(store.readChanges(new EventStore.Version(0), null));
+  }
+}
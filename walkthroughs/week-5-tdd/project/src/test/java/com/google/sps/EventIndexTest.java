@@ -0,0 +1,207 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class EventIndexTest {
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0830AM = TimeRange.getTimeInMinutes(8, 30);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_0930AM = TimeRange.getTimeInMinutes(9, 30);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+  private static final int DURATION_60_MINUTES = 60;
+
+  @Test
+  public void busyRangesOnlyIncludeRequestedAttendees() {
+    EventIndex index = new EventIndex(Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B))));
+
+    List<TimeRange> actual = index.getBusyRanges(Arrays.asList(PERSON_A, PERSON_C));
+    List<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void overlappingRangesAreMerged() {
+    // Events  : |--A--|
+    //              |--B--|
+    //                    |--C--|
+    // Busy    : |--------|-----|
+    EventIndex index = new EventIndex(Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_60_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0830AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)),
+        new Event("Event 3", TimeRange.fromStartDuration(TIME_0900AM, DURATION_60_MINUTES),
+            Arrays.asList(PERSON_C))));
+
+    Collection<String> attendees = Arrays.asList(PERSON_A, PERSON_B, PERSON_C);
+    List<TimeRange> actual = index.getBusyRanges(attendees);
+    List<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void addedEventsAreIndexed() {
+    EventIndex index = new EventIndex();
+    index.add(new Event("Event 1", TimeRange.fromStartDuration(TIME_0930AM, DURATION_30_MINUTES),
+        Arrays.asList(PERSON_A)));
+    index.add(new Event("Event 2", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+        Arrays.asList(PERSON_A)));
+
+    List<TimeRange> actual = index.getBusyRanges(Arrays.asList(PERSON_A));
+    List<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            TimeRange.fromStartDuration(TIME_0930AM, DURATION_30_MINUTES));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void removedEventsAreNotBusy() {
+    Event event = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A));
+    Event sameStart = new Event("Event 2",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_60_MINUTES), Arrays.asList(PERSON_A));
+    EventIndex index = new EventIndex(Arrays.asList(event, sameStart));
+
+    Assert.assertTrue(index.remove(sameStart));
+    Assert.assertFalse(index.remove(sameStart));
+
+    List<TimeRange> actual = index.getBusyRanges(Arrays.asList(PERSON_A));
+    List<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void queryOnUpdatedIndexMatchesQueryOnEvents() {
+    List<Event> events = new ArrayList<>(Arrays.asList(Events.events));
+    EventIndex index = new EventIndex();
+    for (Event event : events) {
+      index.add(event);
+    }
+    index.remove(events.remove(0));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList("Amelia", "Logan"), 30);
+    request.addOptionalAttendee("Isabella");
+
+    FindMeetingQuery query = new FindMeetingQuery();
+    Assert.assertEquals(query.query(events, request), query.query(index, request));
+  }
+
+  @Test
+  public void busyRangesAreCachedPerGroup() {
+    EventIndex index = new EventIndex(Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B))));
+
+    List<TimeRange> first = index.getBusyRanges(Arrays.asList(PERSON_A, PERSON_B));
+    List<TimeRange> second = index.getBusyRanges(Arrays.asList(PERSON_B, PERSON_A, PERSON_A));
+
+    Assert.assertSame(first, second);
+  }
+
+  @Test
+  public void cacheIsInvalidatedOnlyForChangedAttendees() {
+    EventIndex index = new EventIndex(Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B))));
+
+    List<TimeRange> groupA = index.getBusyRanges(Arrays.asList(PERSON_A));
+    List<TimeRange> groupAB = index.getBusyRanges(Arrays.asList(PERSON_A, PERSON_B));
+
+    Event event = new Event("Event 3",
+        TimeRange.fromStartDuration(TIME_1000AM, DURATION_30_MINUTES), Arrays.asList(PERSON_B));
+    index.add(event);
+
+    Assert.assertSame(groupA, index.getBusyRanges(Arrays.asList(PERSON_A)));
+    List<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            TimeRange.fromStartDuration(TIME_1000AM, DURATION_30_MINUTES));
+    Assert.assertEquals(expected, index.getBusyRanges(Arrays.asList(PERSON_A, PERSON_B)));
+
+    index.remove(event);
+
+    Assert.assertEquals(groupAB, index.getBusyRanges(Arrays.asList(PERSON_A, PERSON_B)));
+  }
+
+  @Test
+  public void concurrentQueriesSeeEveryWrite() throws Exception {
+    EventIndex index = new EventIndex();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<?>> readers = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      readers.add(executor.submit(() -> {
+        for (int j = 0; j < 20000; j++) {
+          index.getBusyRanges(Arrays.asList(PERSON_A, PERSON_B));
+        }
+      }));
+    }
+
+    // Every event is added and removed while the readers fill the cache, only the last one stays.
+    for (int minute = 0; minute < 500; minute++) {
+      Event event = new Event("Event " + minute,
+          TimeRange.fromStartDuration(minute, DURATION_30_MINUTES), Arrays.asList(PERSON_A));
+      index.add(event);
+      if (minute < 499) {
+        index.remove(event);
+      }
+    }
+    for (Future<?> reader : readers) {
+      reader.get();
+    }
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.SECONDS);
+
+    List<TimeRange> expected = Arrays.asList(TimeRange.fromStartDuration(499, DURATION_30_MINUTES));
+    Assert.assertEquals(expected, index.getBusyRanges(Arrays.asList(PERSON_A, PERSON_B)));
+  }
+}
@@ -14,11 +14,13 @@
 
 package com.google.sps;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -444,5 +446,236 @@ public final class FindMeetingQueryTest {
 
     Assert.assertEquals(expected, actual);
   }
-}
 
+  @Test
+  public void maximizeOptionalKeepsSlotsForMostOptionalAttendees() {
+    // C is busy all day, so asking for every optional attendee fails. A and B can still join
+    // outside of their own events.
+    //
+    // Events  : |--------------C--------------|
+    //                 |--A--|     |--B--|
+    // Day     : |-----------------------------|
+    // Options : |--1--|     |--2--|     |--3--|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)),
+        new Event("Event 3", TimeRange.WHOLE_DAY, Arrays.asList(PERSON_C)));
+
+    MeetingRequest request = new MeetingRequest(NO_ATTENDEES, DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_A);
+    request.addOptionalAttendee(PERSON_B);
+    request.addOptionalAttendee(PERSON_C);
+
+    Collection<TimeRange> actual = query.queryMaximizingOptionalAttendees(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void maximizeOptionalWithNoGaps() {
+    // Nobody can fit both optional attendees, but each of them is free for part of the day.
+    //
+    // Events  : |-----A-----|----B----|
+    // Day     : |---------------------|
+    // Options : |-----1-----|----2----|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_1100AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_1100AM, TimeRange.END_OF_DAY, true),
+            Arrays.asList(PERSON_B)));
+
+    MeetingRequest request = new MeetingRequest(NO_ATTENDEES, DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_A);
+    request.addOptionalAttendee(PERSON_B);
+
+    Collection<TimeRange> actual = query.queryMaximizingOptionalAttendees(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_1100AM, false),
+            TimeRange.fromStartEnd(TIME_1100AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void maximizeOptionalRespectsMandatoryAttendees() {
+    // The only free slot of A is too short for B, so B is left out.
+    //
+    // Events  : |--A--|-B-| |----A----|
+    // Day     : |---------------------|
+    // Options :       |-----|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0830AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0900AM, TimeRange.END_OF_DAY, true),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 3", TimeRange.fromStartDuration(TIME_0830AM, DURATION_15_MINUTES),
+            Arrays.asList(PERSON_B)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_B);
+
+    Collection<TimeRange> actual = query.queryMaximizingOptionalAttendees(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartDuration(TIME_0830AM, DURATION_30_MINUTES));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void maximizeOptionalMatchesQueryWhenEveryoneFits() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList("Amelia"), DURATION_30_MINUTES);
+    request.addOptionalAttendee("Ava");
+    request.addOptionalAttendee("Noah");
+
+    Collection<Event> events = Arrays.asList(Events.events);
+    Assert.assertEquals(
+        query.query(events, request), query.queryMaximizingOptionalAttendees(events, request));
+  }
+
+  @Test
+  public void maximizeOptionalKeepsTheEndOfDayRuleOfQuery() {
+    // Events  :                             |--A--|
+    // Day     : |------------------------------------|
+    // Options : |-----------------------|
+    //
+    // The 50 minutes left at the end of the day don't fit a 50 minute meeting in query.
+    int duration = 50;
+    Collection<Event> events = Arrays.asList(new Event("Event 1",
+        TimeRange.fromStartEnd(1324, 1390, false), Arrays.asList(PERSON_A)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), duration);
+    request.addOptionalAttendee(PERSON_B);
+
+    Collection<TimeRange> actual = query.queryMaximizingOptionalAttendees(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, 1324, false));
+
+    Assert.assertEquals(expected, actual);
+    Assert.assertEquals(query.query(events, request), actual);
+  }
+
+  @Test
+  public void maximizeOptionalMatchesQueryOnRandomCalendarsWhenEveryoneFits() {
+    String[] people = {PERSON_A, PERSON_B, PERSON_C, "Person D", "Person E"};
+    Random random = new Random(2004);
+
+    // Zero-minute events and meetings of no duration are left out: they give query empty slots
+    // and split points that block no start, see zeroMinuteEventSplitsTheDay.
+    int compared = 0;
+    for (int round = 0; round < 3000; round++) {
+      List<Event> events = new ArrayList<>();
+      int latestEnd = 0;
+      for (int i = 0; i < random.nextInt(10); i++) {
+        int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+        int duration = 1 + random.nextInt(Math.min(TimeRange.WHOLE_DAY.end() - start, 300));
+        events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+            Arrays.asList(people[random.nextInt(people.length)])));
+        latestEnd = Math.max(latestEnd, start + duration);
+      }
+
+      int duration;
+      switch (random.nextInt(3)) {
+        case 0:
+          duration = 1;
+          break;
+        case 1:
+          duration = Math.max(TimeRange.END_OF_DAY - latestEnd + random.nextInt(3) - 1, 1);
+          break;
+        default:
+          duration = 1 + random.nextInt(240);
+      }
+
+      List<String> everyone = new ArrayList<>(Arrays.asList(people[0]));
+      MeetingRequest request = new MeetingRequest(Arrays.asList(people[0]), duration);
+      for (int i = 1; i < people.length; i++) {
+        if (random.nextBoolean()) {
+          request.addOptionalAttendee(people[i]);
+          everyone.add(people[i]);
+        }
+      }
+
+      // Only compare when there is time for every optional attendee.
+      if (query.query(events, new MeetingRequest(everyone, duration)).isEmpty()) {
+        continue;
+      }
+      Assert.assertEquals(
+          query.query(events, request), query.queryMaximizingOptionalAttendees(events, request));
+      compared++;
+    }
+
+    Assert.assertTrue(compared > 1000);
+  }
+
+  @Test
+  public void multiDayEventsStayInsideTheDay() {
+    // Events  : |--A--|                  ...multi-day event of A in minutes since the epoch
+    // Day     : |---------------------|
+    // Options :       |---------------|
+    int epochMinute = TimeRange.toEpochMinute(Instant.parse("2020-06-01T09:00:00Z"));
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(epochMinute, 3 * 24 * 60),
+            Arrays.asList(PERSON_A)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0830AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void zeroMinuteEventSplitsTheDay() {
+    // Events  :           |A (no minutes)
+    // Day     : |---------------------|
+    // Options : |--1------|--2--------|
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_1000AM, 0),
+            Arrays.asList(PERSON_A)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_1000AM, false),
+            TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, query.query(events, request));
+    Assert.assertEquals(expected,
+        new FindMeetingQuery(FindMeetingQuery.Engine.MINUTE_BITMAP).query(events, request));
+  }
+
+  @Test
+  public void noDurationFitsBeforeEachBackToBackEvent() {
+    // Events  : |--A------|--A--------|
+    // Day     : |---------------------|
+    // Options : 1         2
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_1000AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true),
+            Arrays.asList(PERSON_A)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), 0);
+
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartDuration(TimeRange.START_OF_DAY, 0),
+            TimeRange.fromStartDuration(TIME_1000AM, 0));
+
+    Assert.assertEquals(expected, query.query(events, request));
+    Assert.assertEquals(expected,
+        new FindMeetingQuery(FindMeetingQuery.Engine.MINUTE_BITMAP).query(events, request));
+  }
+}
@@ -0,0 +1,150 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class InMemoryEventStoreTest {
+  private static final String PERSON_A = "Person A";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+
+  @Test
+  public void forEachReadsEveryEventInOrder() {
+    List<Event> events = Arrays.asList(Events.events);
+    InMemoryEventStore store = new InMemoryEventStore(events);
+
+    List<Event> actual = new ArrayList<>();
+    store.forEach(actual::add);
+
+    Assert.assertEquals(events, actual);
+  }
+
+  @Test
+  public void pagingSurvivesRemovals() {
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      events.add(new Event("Event " + i,
+          TimeRange.fromStartDuration(TIME_0800AM + i, DURATION_30_MINUTES),
+          Arrays.asList(PERSON_A)));
+    }
+    InMemoryEventStore store = new InMemoryEventStore(events);
+
+    EventStore.Page first = store.getPage(null, 2);
+    store.remove(events.get(0));
+    EventStore.Page second = store.getPage(first.getNextCursor(), 2);
+
+    Assert.assertEquals(events.subList(0, 2), first.getEvents());
+    Assert.assertEquals(events.subList(2, 4), second.getEvents());
+    Assert.assertNull(second.getNextCursor());
+  }
+
+  @Test
+  public void listenersHearAboutWrites() {
+    InMemoryEventStore store = new InMemoryEventStore();
+    List<Event> added = new ArrayList<>();
+    List<Event> removed = new ArrayList<>();
+    store.addListener(new EventStore.Listener() {
+      @Override
+      public void eventAdded(Event event) {
+        added.add(event);
+      }
+
+      @Override
+      public void eventRemoved(Event event) {
+        removed.add(event);
+      }
+    });
+
+    Event event = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A));
+    store.add(event);
+    Assert.assertTrue(store.remove(event));
+    Assert.assertFalse(store.remove(event));
+
+    Assert.assertEquals(Arrays.asList(event), added);
+    Assert.assertEquals(Arrays.asList(event), removed);
+  }
+
+  @Test
+  public void versionCountsWrites() {
+    InMemoryEventStore store = new InMemoryEventStore();
+    Event event = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A));
+
+    Assert.assertEquals(new EventStore.Version(0), store.getVersion());
+    store.add(event);
+    Assert.assertEquals(new EventStore.Version(1), store.getVersion());
+    store.remove(event);
+    store.remove(event);
+    Assert.assertEquals(new EventStore.Version(2), store.getVersion());
+  }
+
+  @Test
+  public void changesAreReplayedInOrder() {
+    InMemoryEventStore store = new InMemoryEventStore();
+    Event event = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A));
+    EventStore.Version before = store.getVersion();
+    store.add(event);
+    store.remove(event);
+    store.remove(event);
+
+    List<String> replayed = new ArrayList<>();
+    EventStore.Version after = store.readChanges(before, new EventStore.Listener() {
+      @Override
+      public void eventAdded(Event added) {
+        replayed.add("added " + added.getTitle());
+      }
+
+      @Override
+      public void eventRemoved(Event removed) {
+        replayed.add("removed " + removed.getTitle());
+      }
+    });
+
+    Assert.assertEquals(Arrays.asList("added Event 1", "removed Event 1"), replayed);
+    Assert.assertEquals(new EventStore.Version(2), after);
+    Assert.assertEquals(store.getVersion(), after);
+  }
+
+  @Test
+  public void oldChangesAreForgotten() {
+    InMemoryEventStore store = new InMemoryEventStore();
+    EventStore.Version before = store.getVersion();
+    for (int i = 0; i < 1001; i++) {
+      store.add(new Event("Event " + i,
+          TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A)));
+    }
+
+    Assert.assertNull(store.readChanges(before, null));
+    Assert.assertNotNull(store.readChanges(new EventStore.Version(1), new EventStore.Listener() {
+      @Override
+      public void eventAdded(Event event) {}
+
+      @Override
+      public void eventRemoved(Event event) {}
+    }));
+  }
+}
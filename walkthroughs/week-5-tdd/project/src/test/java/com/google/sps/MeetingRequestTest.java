@@ -14,6 +14,7 @@
 
 package com.google.sps;
 
+import com.google.gson.Gson;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -44,4 +45,22 @@ public final class MeetingRequestTest {
     int expected = 0;
     Assert.assertEquals(expected, actual);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void requestsFromJsonWithoutAttendeesAreNotValid() {
+    Gson gson = new Gson();
+
+    Assert.assertTrue(gson.fromJson(
+        "{\"attendees\":[\"A\"],\"optional_attendees\":[],\"duration\":30}",
+        MeetingRequest.class).isValid());
+    Assert.assertFalse(gson.fromJson(
+        "{\"attendees\":null,\"optional_attendees\":[],\"duration\":30}",
+        MeetingRequest.class).isValid());
+    Assert.assertFalse(gson.fromJson(
+        "{\"attendees\":[null],\"optional_attendees\":[],\"duration\":30}",
+        MeetingRequest.class).isValid());
+    Assert.assertFalse(gson.fromJson(
+        "{\"attendees\":[\"A\"],\"optional_attendees\":[],\"duration\":-1}",
+        MeetingRequest.class).isValid());
+  }
+}
@@ -0,0 +1,186 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class MinuteBitmapTest {
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+
+  @Test
+  public void emptyDayIsOneFreeRun() {
+    MinuteBitmap bitmap = new MinuteBitmap();
+
+    List<TimeRange> actual = bitmap.findFreeRuns(DURATION_30_MINUTES);
+    List<TimeRange> expected = Arrays.asList(TimeRange.WHOLE_DAY);
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void busyRangeAcrossWords() {
+    // Minute 64 starts the second word, minute 128 the third.
+    MinuteBitmap bitmap = new MinuteBitmap();
+    bitmap.markBusy(60, 130);
+
+    Assert.assertFalse(bitmap.isBusy(59));
+    Assert.assertTrue(bitmap.isBusy(60));
+    Assert.assertTrue(bitmap.isBusy(64));
+    Assert.assertTrue(bitmap.isBusy(129));
+    Assert.assertFalse(bitmap.isBusy(130));
+  }
+
+  @Test
+  public void busyRangeEndingOnWordBoundary() {
+    MinuteBitmap bitmap = new MinuteBitmap();
+    bitmap.markBusy(0, 64);
+
+    List<TimeRange> actual = bitmap.findFreeRuns(DURATION_30_MINUTES);
+    List<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(64, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void shortFreeRunsAreSkipped() {
+    MinuteBitmap bitmap = new MinuteBitmap();
+    bitmap.markBusy(TimeRange.START_OF_DAY, TIME_0800AM);
+    bitmap.markBusy(TIME_0800AM + 10, TIME_0900AM);
+
+    List<TimeRange> actual = bitmap.findFreeRuns(DURATION_30_MINUTES);
+    List<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0900AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void orMergesBusyMinutes() {
+    MinuteBitmap first = new MinuteBitmap();
+    first.markBusy(TIME_0800AM, TIME_0900AM);
+    MinuteBitmap second = new MinuteBitmap();
+    second.markBusy(TIME_0900AM, TimeRange.WHOLE_DAY.end());
+
+    first.or(second);
+
+    List<TimeRange> actual = first.findFreeRuns(DURATION_30_MINUTES);
+    List<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void splitCutsFreeRunsOnlyBetweenFreeMinutes() {
+    MinuteBitmap bitmap = new MinuteBitmap();
+    bitmap.markBusy(TIME_0800AM, TIME_0900AM);
+    bitmap.markBusy(TimeRange.fromStartDuration(TIME_0800AM + 10, 0));
+    bitmap.markBusy(TimeRange.fromStartDuration(TIME_0900AM, 0));
+    bitmap.markBusy(TimeRange.fromStartDuration(TIME_0900AM + 60, 0));
+
+    List<TimeRange> actual = bitmap.findFreeRuns(DURATION_30_MINUTES);
+    List<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0900AM, TIME_0900AM + 60, false),
+            TimeRange.fromStartEnd(TIME_0900AM + 60, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void bitmapEngineMatchesIntervalEngine() {
+    String[] people = {"A", "B", "C", "D", "E", "F"};
+    Random random = new Random(2020);
+
+    FindMeetingQuery intervalQuery = new FindMeetingQuery(FindMeetingQuery.Engine.INTERVAL_INDEX);
+    FindMeetingQuery bitmapQuery = new FindMeetingQuery(FindMeetingQuery.Engine.MINUTE_BITMAP);
+
+    for (int round = 0; round < 200; round++) {
+      Collection<Event> events = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+        int duration = 1 + random.nextInt(120);
+        events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+            Arrays.asList(people[random.nextInt(people.length)])));
+      }
+
+      MeetingRequest request = new MeetingRequest(
+          Arrays.asList(people[0], people[1]), 1 + random.nextInt(90));
+      request.addOptionalAttendee(people[2 + random.nextInt(people.length - 2)]);
+
+      Assert.assertEquals(intervalQuery.query(events, request), bitmapQuery.query(events, request));
+    }
+  }
+
+  @Test
+  public void bitmapEngineMatchesIntervalEngineOnBoundaries() {
+    // Zero-minute events, events that run outside of the day, meetings of no duration and
+    // meetings that only fit at the end of the day are where the two engines could disagree.
+    String[] people = {"A", "B", "C", "D"};
+    Random random = new Random(2002);
+
+    FindMeetingQuery intervalQuery = new FindMeetingQuery(FindMeetingQuery.Engine.INTERVAL_INDEX);
+    FindMeetingQuery bitmapQuery = new FindMeetingQuery(FindMeetingQuery.Engine.MINUTE_BITMAP);
+
+    for (int round = 0; round < 2000; round++) {
+      Collection<Event> events = new ArrayList<>();
+      int latestEnd = 0;
+      for (int i = 0; i < random.nextInt(8); i++) {
+        int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+        int duration = random.nextInt(4) == 0
+            ? 0 : 1 + random.nextInt(TimeRange.WHOLE_DAY.end() - start);
+        if (random.nextInt(5) == 0) {
+          start = random.nextInt(3 * TimeRange.WHOLE_DAY.duration()) - TimeRange.WHOLE_DAY.end();
+          duration = random.nextInt(2 * TimeRange.WHOLE_DAY.duration());
+        }
+        events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+            Arrays.asList(people[random.nextInt(people.length)])));
+        latestEnd = Math.max(latestEnd, start + duration);
+      }
+
+      int duration;
+      switch (random.nextInt(3)) {
+        case 0:
+          duration = random.nextInt(2);
+          break;
+        case 1:
+          latestEnd = Math.min(latestEnd, TimeRange.END_OF_DAY);
+          duration = Math.max(TimeRange.END_OF_DAY - latestEnd + random.nextInt(3) - 1, 0);
+          break;
+        default:
+          duration = 1 + random.nextInt(240);
+      }
+
+      MeetingRequest request = new MeetingRequest(Arrays.asList(people[0]), duration);
+      request.addOptionalAttendee(people[1 + random.nextInt(people.length - 1)]);
+
+      Assert.assertEquals(intervalQuery.query(events, request), bitmapQuery.query(events, request));
+    }
+  }
+}
@@ -0,0 +1,163 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class SearchWindowTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  private static final ZoneId MEXICO_CITY = ZoneId.of("America/Mexico_City");
+  private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+  // Monday, June 1st 2020.
+  private static final LocalDate MONDAY = LocalDate.of(2020, 6, 1);
+
+  private static final LocalTime TIME_0900AM = LocalTime.of(9, 0);
+  private static final LocalTime TIME_1000AM = LocalTime.of(10, 0);
+  private static final LocalTime TIME_1700PM = LocalTime.of(17, 0);
+
+  private static final List<DayOfWeek> WEEKDAYS = Arrays.asList(DayOfWeek.MONDAY,
+      DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY, DayOfWeek.THURSDAY, DayOfWeek.FRIDAY);
+
+  private static final int DURATION_1_HOUR = 60;
+
+  private FindMeetingQuery query;
+
+  @Before
+  public void setUp() {
+    query = new FindMeetingQuery();
+  }
+
+  @Test
+  public void wholeDaysAreJoined() {
+    SearchWindow window = new SearchWindow(MONDAY, 3, MEXICO_CITY);
+
+    List<TimeRange> actual = window.getOpenRanges();
+    List<TimeRange> expected = Arrays.asList(
+        range(MONDAY, LocalTime.MIDNIGHT, MONDAY.plusDays(3), LocalTime.MIDNIGHT, MEXICO_CITY));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void onlyWorkingHoursOfWorkingDays() {
+    // Saturday and Sunday are skipped.
+    SearchWindow window =
+        new SearchWindow(MONDAY.plusDays(4), 4, MEXICO_CITY, TIME_0900AM, TIME_1700PM, WEEKDAYS);
+
+    List<TimeRange> actual = window.getOpenRanges();
+    List<TimeRange> expected = Arrays.asList(
+        range(MONDAY.plusDays(4), TIME_0900AM, MONDAY.plusDays(4), TIME_1700PM, MEXICO_CITY),
+        range(MONDAY.plusDays(7), TIME_0900AM, MONDAY.plusDays(7), TIME_1700PM, MEXICO_CITY));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void daylightSavingTimeMovesWorkingHours() {
+    // Clocks in New York go forward on Sunday, March 8th 2020.
+    LocalDate saturday = LocalDate.of(2020, 3, 7);
+    SearchWindow window = new SearchWindow(saturday, 3, NEW_YORK, TIME_0900AM, TIME_1700PM,
+        Arrays.asList(DayOfWeek.SATURDAY, DayOfWeek.MONDAY));
+
+    List<TimeRange> openRanges = window.getOpenRanges();
+    int minutesBetweenStarts = openRanges.get(1).start() - openRanges.get(0).start();
+
+    Assert.assertEquals(2 * 24 * 60 - 60, minutesBetweenStarts);
+  }
+
+  @Test
+  public void tooLongWindowIsRejected() {
+    try {
+      new SearchWindow(MONDAY, SearchWindow.MAX_DAYS + 1, MEXICO_CITY);
+      Assert.fail();
+    } catch (IllegalArgumentException expected) {
+      // The window is longer than the horizon.
+    }
+  }
+
+  @Test
+  public void queryAcrossWorkingDays() {
+    // A is busy all Monday, B is busy Tuesday morning until 10.
+    //
+    // Events  : |--A--|   |B|
+    // Days    : |-Mon-|   |-Tue-|   |-Wed-|
+    // Options :             |-1-|   |--2--|
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", range(MONDAY, TIME_0900AM, MONDAY, TIME_1700PM, MEXICO_CITY),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2",
+            range(MONDAY.plusDays(1), LocalTime.MIDNIGHT, MONDAY.plusDays(1), TIME_1000AM,
+                MEXICO_CITY),
+            Arrays.asList(PERSON_B)));
+
+    SearchWindow window =
+        new SearchWindow(MONDAY, 3, MEXICO_CITY, TIME_0900AM, TIME_1700PM, WEEKDAYS);
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_1_HOUR);
+
+    Collection<TimeRange> actual = query.query(events, request, window);
+    Collection<TimeRange> expected = Arrays.asList(
+        range(MONDAY.plusDays(1), TIME_1000AM, MONDAY.plusDays(1), TIME_1700PM, MEXICO_CITY),
+        range(MONDAY.plusDays(2), TIME_0900AM, MONDAY.plusDays(2), TIME_1700PM, MEXICO_CITY));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void queryAcrossMidnight() {
+    // A is busy until 23:30 on Monday and from 00:30 on Tuesday, so the hour around midnight is
+    // the only option.
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1",
+            range(MONDAY, LocalTime.MIDNIGHT, MONDAY, LocalTime.of(23, 30), MEXICO_CITY),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2",
+            range(MONDAY.plusDays(1), LocalTime.of(0, 30), MONDAY.plusDays(2), LocalTime.MIDNIGHT,
+                MEXICO_CITY),
+            Arrays.asList(PERSON_A)));
+
+    SearchWindow window = new SearchWindow(MONDAY, 2, MEXICO_CITY);
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR);
+
+    Collection<TimeRange> actual = query.query(events, request, window);
+    Collection<TimeRange> expected = Arrays.asList(range(MONDAY, LocalTime.of(23, 30),
+        MONDAY.plusDays(1), LocalTime.of(0, 30), MEXICO_CITY));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  private static TimeRange range(
+      LocalDate startDay, LocalTime start, LocalDate endDay, LocalTime end, ZoneId zone) {
+    Instant startInstant = ZonedDateTime.of(startDay, start, zone).toInstant();
+    Instant endInstant = ZonedDateTime.of(endDay, end, zone).toInstant();
+    return TimeRange.fromInstants(startInstant, endInstant);
+  }
+}
@@ -14,6 +14,7 @@
 
 package com.google.sps;
 
+import java.time.Instant;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -184,4 +185,15 @@ public final class TimeRangeTest {
     Assert.assertTrue(emptyMiddle.overlaps(range));
     Assert.assertTrue(emptyEnd.overlaps(range));
   }
+
+  @Test
+  public void fromInstantsRoundsOutwards() {
+    // 2020-06-01T10:00:30Z to 2020-06-01T11:00:01Z covers the minutes from 10:00 to 11:01.
+    Instant start = Instant.parse("2020-06-01T10:00:30Z");
+    Instant end = Instant.parse("2020-06-01T11:00:01Z");
+    TimeRange range = TimeRange.fromInstants(start, end);
+
+    Assert.assertEquals(Instant.parse("2020-06-01T10:00:00Z"), TimeRange.toInstant(range.start()));
+    Assert.assertEquals(Instant.parse("2020-06-01T11:01:00Z"), TimeRange.toInstant(range.end()));
+  }
 }